@@ -1,12 +1,50 @@
 package main;
 
+import com.sun.management.ThreadMXBean;
+import main.math.ChordBuffer;
+import main.math.OrbitAnalytics;
+import main.math.OrbitDecomposition;
+import main.math.ParameterSweep;
+import main.math.PointRing;
+import main.math.RMath;
+import main.math.SweepMetric;
+import main.math.Viewport;
+import main.render.ChordRenderer;
+import main.render.RenderMode;
+import main.ui.FrameCache;
+import main.ui.FrameState;
 import main.ui.GlConfig;
+import main.ui.QualityGovernor;
+import main.ui.RenderQuality;
+import main.ui.TimesTablePanel;
 import main.ui.TimesTableUi;
+import main.ui.TripleBuffer;
+import main.util.FixedStepClock;
+import main.util.Log;
 import main.util.Ui;
+import org.jetbrains.annotations.NotNull;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 
 public class Main {
 
+    public static final String TAG = "Main";
+
+    public static final int SWEEP_POINTS_MAX = 400;
+
     public static void mainLaunch(String[] args) {
         Ui.considerPost(() -> {
             final TimesTableUi ui = new TimesTableUi();
@@ -14,8 +52,402 @@ public class Main {
         });
     }
 
+    /**
+     * Sweeps a metric over point counts {@link TimesTablePanel#POINTS_COUNT_MIN}..{@link #SWEEP_POINTS_MAX} and the whole times factor range at
+     * {@link GlConfig#FRAME_CACHE_TIMES_FACTOR_QUANTUM}, on all cores, and writes the matrix to a file
+     *
+     * <p>
+     * Args: {@code [metric name, default CHORD_COUNT] [output file, default sweep-<metric>.bin]}
+     * */
+    public static void mainSweep(String[] args) {
+        final SweepMetric metric = args.length > 0? SweepMetric.valueOf(args[0]): SweepMetric.CHORD_COUNT;
+        final Path out = Path.of(args.length > 1? args[1]: "sweep-" + metric.name().toLowerCase() + ".bin");
+
+        final ParameterSweep sweep = new ParameterSweep(metric, TimesTablePanel.POINTS_COUNT_MIN, SWEEP_POINTS_MAX,
+                TimesTablePanel.TIMES_FACTOR_MIN, TimesTablePanel.TIMES_FACTOR_MAX, GlConfig.FRAME_CACHE_TIMES_FACTOR_QUANTUM);
+
+        final long start = System.nanoTime();
+        sweep.compute(ForkJoinPool.commonPool());
+        Log.d(TAG, "Swept " + sweep + " in " + String.format("%.1f s", (System.nanoTime() - start) / 1e9));
+
+        try {
+            sweep.write(out);
+            Log.d(TAG, "Sweep written to " + out.toAbsolutePath());
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to write sweep to " + out, e);
+        }
+    }
+
+    /* Checks */
+
+    public static final String TEST_TAG = "Test";
+
+    private static void check(boolean condition, @NotNull String message) {
+        if (!condition)
+            throw new AssertionError(message);
+    }
+
+    /**
+     * Runs the checks of all components. Each logs what it measured and throws on a regression. Exits with status 1 if any failed
+     * */
     public static void mainTest(String[] args) {
+        final Runnable[] tests = {
+                Main::testGeometryAllocation,
+                Main::testPointRing,
+                Main::testTiledRaster,
+                Main::testFrameCache,
+                Main::testTripleBuffer,
+                Main::testFixedStepClock,
+                Main::testQualityGovernor,
+                Main::testDuplicateChords,
+                Main::testOrbitDecomposition,
+                Main::testOrbitAnalytics,
+                Main::testParameterSweep,
+                Main::testViewportCulling
+        };
+
+        int failures = 0;
+        for (Runnable test: tests) {
+            try {
+                test.run();
+            } catch (AssertionError | RuntimeException e) {
+                failures++;
+                Log.e(TEST_TAG, "FAILED: " + e.getMessage(), e);
+            }
+        }
+
+        if (failures > 0) {
+            Log.e(TEST_TAG, failures + " of " + tests.length + " checks failed");
+            System.exit(1);
+        }
+
+        Log.d(TEST_TAG, "All " + tests.length + " checks passed");
+    }
+
+    /**
+     * Bytes allocated per frame by the geometry stage in steady state. Expected to be 0
+     * */
+    private static void testGeometryAllocation() {
+        final ThreadMXBean bean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long threadId = Thread.currentThread().getId();
+        final ChordBuffer buffer = new ChordBuffer();
+        final int pointsCount = 400;
+        final int frames = 10000;
+
+        // warm up
+        for (int i=0; i < frames; i++) {
+            buffer.compute(pointsCount, 1 + (i * 0.01f), 300);
+        }
+
+        final long start = bean.getThreadAllocatedBytes(threadId);
+        for (int i=0; i < frames; i++) {
+            buffer.compute(pointsCount, 1 + (i * 0.01f), 300);
+        }
+
+        final long allocated = bean.getThreadAllocatedBytes(threadId) - start;
+        Log.d(TEST_TAG, "Geometry stage: " + ((double) allocated / frames) + " bytes allocated per frame (" + pointsCount + " points)");
+        check(allocated < frames, "geometry stage allocates " + ((double) allocated / frames) + " bytes per frame");
+    }
+
+    /**
+     * Point ring fast path against full trig
+     * */
+    private static void testPointRing() {
+        final PointRing ring = new PointRing();
+        final float[] p = new float[2];
+        float maxError = 0;
+        for (int count = TimesTablePanel.POINTS_COUNT_MIN; count <= 400; count++) {
+            ring.ensure(count, 300);
+            for (int i=0; i < count * 10; i++) {
+                final float index = i / 10f;
+                ring.pointAt(index, p, 0);
+                final double theta = index * ring.delTheta() + RMath.PI;
+                maxError = Math.max(maxError, (float) Math.hypot(p[0] - Math.cos(theta) * 300, p[1] - Math.sin(theta) * 300));
+            }
+        }
+
+        Log.d(TEST_TAG, "Point ring: max error " + maxError + " px (radius 300)");
+        check(maxError < 1e-3f, "point ring error " + maxError + " px");
+    }
+
+    /**
+     * Tiled parallel raster against single-threaded raster. Expected to be identical
+     * */
+    private static void testTiledRaster() {
+        final int width = 1237, height = 911, pointsCount = 400;
+        final ChordBuffer buffer = new ChordBuffer();
+        final ChordRenderer raster = RenderMode.RASTER.createRenderer(), tiled = RenderMode.RASTER_PARALLEL.createRenderer();
+        final BufferedImage rasterImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+        final BufferedImage tiledImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+        final Random random = new Random(1);
+        int mismatches = 0;
+
+        for (int i=0; i < 100; i++) {
+            final float timesFactor = 1 + random.nextFloat() * 499;
+            final double scale = Math.exp(random.nextGaussian());
+            final AffineTransform view = AffineTransform.getTranslateInstance(width / 2d + random.nextGaussian() * 200, height / 2d + random.nextGaussian() * 200);
+            view.scale((random.nextBoolean()? -1: 1) * scale, (random.nextBoolean()? -1: 1) * scale);
+            buffer.compute(10 + random.nextInt(pointsCount - 10), timesFactor, 300);
+
+            for (BufferedImage image: new BufferedImage[] { rasterImage, tiledImage }) {
+                final Graphics2D g = image.createGraphics();
+                g.setComposite(AlphaComposite.Src);
+                (image == rasterImage? raster: tiled).render(g, buffer, view, width, height, timesFactor);
+                g.dispose();
+            }
+
+            if (!Arrays.equals(((DataBufferInt) rasterImage.getRaster().getDataBuffer()).getData(), ((DataBufferInt) tiledImage.getRaster().getDataBuffer()).getData())) {
+                mismatches++;
+            }
+        }
+
+        Log.d(TEST_TAG, "Tiled raster: " + mismatches + " of 100 frames differ from single-threaded raster");
+        check(mismatches == 0, mismatches + " tiled raster frames differ");
+    }
+
+    @NotNull
+    private static FrameState testFrameState(int pointsCount) {
+        return new FrameState(1, pointsCount, 100, 100, 1, 0, 0, false, false, false, false, true, GlConfig.PatternColorMode.PATTERN, RenderMode.RASTER, RenderQuality.FULL, 1, false);
+    }
+
+    /**
+     * Frame cache with a budget of 3 frames, scrubbing back and forth over 5 values
+     * */
+    private static void testFrameCache() {
+        final FrameState base = testFrameState(400);
+        final long budget = 3 * FrameCache.imageBytes(new BufferedImage(100, 100, BufferedImage.TYPE_INT_RGB));
+        final FrameCache cache = new FrameCache(budget);
+        for (int pass=0; pass < 4; pass++) {
+            for (int v=1; v <= 5; v++) {
+                final FrameState key = base.withTimesFactor(FrameCache.quantize(pass % 2 == 0? v: 6 - v, GlConfig.FRAME_CACHE_TIMES_FACTOR_QUANTUM));
+                if (cache.get(key) == null) {
+                    cache.put(key, cache.obtainImage(100, 100), true);
+                }
+            }
+        }
+
+        Log.d(TEST_TAG, "Frame cache: " + cache);
+        check(cache.getBytes() <= budget && cache.size() <= 3, "frame cache over budget: " + cache);
+        check(cache.getHits() > 0 && cache.getEvictions() > 0, "frame cache neither hits nor evicts: " + cache);
+    }
+
+    /**
+     * Producer and consumer never hold the same image, and every produced frame is either presented or dropped
+     * */
+    private static void testTripleBuffer() {
+        final FrameState base = testFrameState(400);
+        final TripleBuffer triple = new TripleBuffer();
+        final Thread producer = new Thread(() -> {
+            for (int i=0; i < 10_000; i++) {
+                final BufferedImage back = triple.obtainBack(10, 10);
+                back.setRGB(0, 0, i);
+                triple.publish(back, base.withTimesFactor(i));
+            }
+        });
+
+        producer.start();
+        int torn = 0;
+        while (producer.isAlive() || triple.hasFreshFrame()) {
+            final TripleBuffer.Frame front = triple.acquireFront();
+            if (front.image() != null && (front.image().getRGB(0, 0) & 0xFFFFFF) != (int) front.key().timesFactor) {
+                torn++;
+            }
+        }
+
+        final long unaccounted = triple.getFramesProduced() - triple.getFramesPresented() - triple.getFramesDropped();
+        Log.d(TEST_TAG, "Triple buffer: " + triple + ", " + torn + " torn frames, unaccounted " + unaccounted);
+        check(torn == 0, torn + " torn frames");
+        check(unaccounted == 0, unaccounted + " frames neither presented nor dropped");
+    }
+
+    /**
+     * Jittery 60 Hz frames for 1 s, then a 5 s stall, then the frame rate going up from the hidden rate
+     * */
+    private static void testFixedStepClock() {
+        final FixedStepClock clock = new FixedStepClock(1_000_000, 1000, 16_666_667);
+        final Random jitter = new Random(7);
+        long now = 0, steps = clock.advance(now);
+        while (now < 1_000_000_000L) {
+            now += 16_666_667 + jitter.nextInt(8_000_000) - 4_000_000;
+            steps += clock.advance(now);
+        }
+
+        final long stepsBeforeStall = steps, stallSteps = clock.advance(now + 5_000_000_000L);
+        Log.d(TEST_TAG, "Fixed step clock: " + stepsBeforeStall + " steps in " + now / 1_000_000 + " ms, " + stallSteps + " steps after a 5 s stall, " + clock);
+        check(Math.abs(stepsBeforeStall - now / 1_000_000) <= 1, stepsBeforeStall + " steps in " + now / 1_000_000 + " ms");
+        check(stallSteps == clock.getMaxCatchUpSteps(), stallSteps + " catch-up steps after a stall, limit " + clock.getMaxCatchUpSteps());
+
+        final FixedStepClock paced = new FixedStepClock(1_000_000, 1000, 500_000_000);
+        paced.nextFrameDeadline(0);
+        paced.setFramePeriodNanos(16_666_667);
+        final long due = paced.nextFrameDeadline(10_000_000) - 10_000_000;
+        check(due <= 16_666_667, "next frame due in " + due / 1e6 + " ms after the frame rate went up");
+    }
+
+    /**
+     * Modelled frame cost per level against a 60 fps budget, with noise. Expected to settle at the best quality within budget
+     * */
+    private static void testQualityGovernor() {
+        final long budget = 16_666_667;
+        final QualityGovernor governor = new QualityGovernor(budget);
+        final long[] costNanos = { 40_000_000, 25_000_000, 21_000_000, 12_000_000, 6_000_000 };
+        final Random jitter = new Random(7);
+        int changes = 0;
+        for (int f=0; f < 2000; f++) {
+            final RenderQuality quality = governor.getQuality();
+            if (governor.onFrame(quality, costNanos[quality.ordinal()] + jitter.nextInt(2_000_000) - 1_000_000)) {
+                changes++;
+            }
+        }
+
+        final int settled = governor.getQuality().ordinal();
+        Log.d(TEST_TAG, "Quality governor: settled at " + governor.getQuality() + " after " + changes + " changes, " + governor);
+        check(costNanos[settled] < budget && (settled == 0 || costNanos[settled - 1] > budget), "governor settled at " + governor.getQuality());
+        check(changes <= 10, "governor oscillates, " + changes + " changes");
+    }
+
+    /**
+     * Integral factors: each chord emitted once, against a brute force set of unordered chords
+     * */
+    private static void testDuplicateChords() {
+        final int n = 1000;
+        final ChordBuffer integral = new ChordBuffer();
+        final StringBuilder duplicates = new StringBuilder();
+        for (int k : new int[] { 2, 7, 999 }) {
+            final HashSet<Long> expected = new HashSet<>();
+            for (int i=0; i < n; i++) {
+                final int j = (int) ((long) i * k % n);
+                if (i != j) {
+                    expected.add((long) Math.min(i, j) * n + Math.max(i, j));
+                }
+            }
+
+            integral.compute(n, k, 300);
+            final HashSet<Long> emitted = new HashSet<>();
+            for (int c=0; c < integral.chordCount(); c++) {
+                final int i = integral.chordIndices()[c], j = (int) ((long) i * k % n);
+                emitted.add((long) Math.min(i, j) * n + Math.max(i, j));
+            }
+
+            duplicates.append(" x").append(k).append(": ").append(integral.chordCount()).append(" chords, ").append(integral.duplicateCount()).append(" skipped;");
+            check(integral.chordCount() == expected.size() && emitted.equals(expected), "x" + k + ": " + integral.chordCount() + " chords emitted, " + expected.size() + " distinct");
+        }
+
+        Log.d(TEST_TAG, "Duplicate chords (" + n + " points):" + duplicates);
+    }
+
+    /**
+     * Orbit walks cover exactly the deduplicated chords
+     * */
+    private static void testOrbitDecomposition() {
+        final ChordBuffer integral = new ChordBuffer();
+        final OrbitDecomposition orbits = new OrbitDecomposition();
+        final StringBuilder walks = new StringBuilder();
+        for (int k : new int[] { 2, 7, 21, 999 }) {
+            integral.compute(1000, k, 300);
+            orbits.compute(1000, k);
+            walks.append(" x").append(k).append(": ").append(orbits.walkCount()).append(" walks, ").append(orbits.chordCount()).append('/').append(integral.chordCount()).append(" chords, ").append(orbits.cycleCount()).append(" cycles;");
+            check(orbits.chordCount() == integral.chordCount(), "x" + k + ": walks cover " + orbits.chordCount() + " of " + integral.chordCount() + " chords");
+        }
+
+        Log.d(TEST_TAG, "Orbit decomposition (1000 points):" + walks);
+    }
+
+    /**
+     * Closed form against walking, then a huge table whose cycles must cover all its points
+     * */
+    private static void testOrbitAnalytics() {
+        final OrbitDecomposition orbits = new OrbitDecomposition();
+        int mismatches = 0;
+        for (int n : new int[] { 1, 2, 360, 1000, 1024, 4097, 65536, 99991 }) {
+            for (long k : new long[] { 0, 1, 2, 3, 7, 10, 21, n - 1L, n + 2L }) {
+                final OrbitAnalytics.Summary summary = OrbitAnalytics.analyze(n, k);
+                final long walked = OrbitAnalytics.traverseCycles(n, k, ForkJoinPool.commonPool(), null);
+                orbits.compute(n, Math.floorMod(k, n));
+                if (summary.cycles != walked || summary.cycles != orbits.cycleCount() + orbits.fixedPointCount() || summary.fixedPoints != orbits.fixedPointCount()) {
+                    mismatches++;
+                    Log.d(TEST_TAG, "Orbit analytics mismatch: " + summary + ", walked " + walked + ", " + orbits);
+                }
+            }
+        }
+
+        final StringBuilder distribution = new StringBuilder();
+        final long[] covered = new long[1];
+        final long start = System.nanoTime();
+        final OrbitAnalytics.Summary huge = OrbitAnalytics.analyze(1_000_000_000L, 3, (length, count) -> {
+            distribution.append(' ').append(count).append('x').append(length);
+            covered[0] += length * count;
+        });
+
+        Log.d(TEST_TAG, "Orbit analytics: " + mismatches + " mismatches, " + huge + " in " + String.format("%.2f ms", (System.nanoTime() - start) / 1e6) + ", cycles:" + distribution);
+        check(mismatches == 0, mismatches + " orbit analytics mismatches");
+        check(covered[0] == huge.periodicPoints && huge.periodicPoints == huge.pointsCount, "cycles cover " + covered[0] + " of " + huge.periodicPoints + " periodic points");
+    }
+
+    /**
+     * Cells match the geometry, and survive the binary round trip
+     * */
+    private static void testParameterSweep() {
+        final ParameterSweep sweep = new ParameterSweep(SweepMetric.CHORD_COUNT, 10, 60, 1, 20, 0.01f);
+        final long start = System.nanoTime();
+        sweep.compute(ForkJoinPool.commonPool());
+        final long nanos = System.nanoTime() - start;
+
+        final ChordBuffer buffer = new ChordBuffer();
+        int mismatches = 0;
+        for (int cell=0; cell < sweep.cellCount(); cell += 97) {
+            final int row = cell / sweep.columns, column = cell % sweep.columns;
+            buffer.compute(sweep.pointsCountAt(row), sweep.timesFactorAt(column), 1);
+            if (sweep.get(row, column) != buffer.chordCount()) {
+                mismatches++;
+            }
+        }
+
+        final ParameterSweep read;
+        final int size;
+        try {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            sweep.write(bytes);
+            size = bytes.size();
+            read = ParameterSweep.read(new ByteArrayInputStream(bytes.toByteArray()));
+        } catch (IOException e) {
+            throw new AssertionError("parameter sweep round trip failed", e);
+        }
+
+        final boolean equal = Arrays.equals(read.values(), sweep.values());
+        Log.d(TEST_TAG, "Parameter sweep: " + sweep + " in " + String.format("%.0f ms", nanos / 1e6) + ", " + mismatches + " mismatches, " + size + " bytes, round trip " + (equal? "equal": "DIFFERENT"));
+        check(mismatches == 0, mismatches + " sweep cells differ from the geometry");
+        check(equal, "sweep round trip differs");
+    }
+
+    /**
+     * Viewport culling at deep zoom: visible chords only, and still on their exact lines
+     * */
+    private static void testViewportCulling() {
+        final int pointsCount = 20000;
+        final float radius = 300;
+        final double scale = 1e5;
+        final Viewport viewport = new Viewport();
+        viewport.set(-radius, 0, 800 / 2.0 / scale, 600 / 2.0 / scale);       // a 800x600 view centered on point 0
+        final ChordBuffer deep = new ChordBuffer();
+        deep.compute(pointsCount, 2.5f, radius, 1, viewport);
+
+        double maxErrorPx = 0;
+        final float[] chords = deep.chords();
+        for (int c=0; c < deep.chordCount(); c++) {
+            final int i = deep.chordIndices()[c];
+            final double t1 = i * Math.PI * 2 / pointsCount + Math.PI, t2 = ((i * 2.5) % pointsCount) * Math.PI * 2 / pointsCount + Math.PI;
+            final double ax = Math.cos(t1) * radius, ay = Math.sin(t1) * radius, bx = Math.cos(t2) * radius, by = Math.sin(t2) * radius;
+            for (int e=0; e < 4; e += 2) {
+                final double x = deep.originX() + chords[c * ChordBuffer.CHORD_STRIDE + e], y = deep.originY() + chords[c * ChordBuffer.CHORD_STRIDE + e + 1];
+                final double distance = Math.abs((bx - ax) * (y - ay) - (by - ay) * (x - ax)) / Math.hypot(bx - ax, by - ay);
+                maxErrorPx = Math.max(maxErrorPx, distance * scale);
+            }
+        }
 
+        Log.d(TEST_TAG, "Viewport culling: " + deep.chordCount() + " of " + pointsCount + " chords visible at " + scale + "x, max error " + String.format("%.4f px", maxErrorPx));
+        check(deep.chordCount() > 0 && deep.chordCount() < pointsCount / 100, deep.chordCount() + " of " + pointsCount + " chords kept");
+        check(maxErrorPx < 0.01, "culled chords off their lines by " + maxErrorPx + " px");
     }
 
     public static void main(String[] args) {
@@ -23,6 +455,7 @@ public class Main {
         GlConfig.init();
 
 //        mainTest(args);
+//        mainSweep(args);
         mainLaunch(args);
     }
 
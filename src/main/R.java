@@ -9,6 +9,9 @@ import com.formdev.flatlaf.intellijthemes.FlatDarkPurpleIJTheme;
 import com.formdev.flatlaf.intellijthemes.FlatOneDarkIJTheme;
 import com.formdev.flatlaf.intellijthemes.materialthemeuilite.FlatMaterialDarkerIJTheme;
 import com.formdev.flatlaf.intellijthemes.materialthemeuilite.FlatMaterialLighterIJTheme;
+import main.math.RMath;
+import main.math.SweepMetric;
+import main.ui.RenderQuality;
 import main.util.Log;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -197,6 +200,17 @@ public class R {
     }
 
 
+    @NotNull
+    public static String getRenderModeLabelText() {
+        return "Renderer ";
+    }
+
+    @NotNull
+    public static String getRenderModeShortDes() {
+        return "configure how lines are drawn";
+    }
+
+
     @NotNull
     public static String getPlayPauseText(boolean playing) {
         return playing? "Pause": "Play";
@@ -252,6 +266,15 @@ public class R {
         return "Points: " + points;
     }
 
+    @NotNull
+    public static String getPointsCountLabel(int points) {
+        if (points >= 1_000_000 && points % 1_000_000 == 0)
+            return (points / 1_000_000) + "M";
+        if (points >= 1000 && points % 1000 == 0)
+            return (points / 1000) + "K";
+        return String.valueOf(points);
+    }
+
     @NotNull
     public static String getPointsCountShortDes() {
         return "Change Times Table points";
@@ -275,6 +298,82 @@ public class R {
         return String.format("Times: %.2f", timesFactor);
     }
 
+    @Nullable
+    public static String getStatusText(double timesFactor, @NotNull RenderQuality quality) {
+        return quality == RenderQuality.FULL? getStatusText(timesFactor): String.format("Times: %.2f  |  Quality: %s", timesFactor, quality.displayName);
+    }
+
+    @NotNull
+    public static String getPresentStatsText(double presentMs, boolean pageFlipping) {
+        return String.format("Present: %.2f ms (%s)", presentMs, pageFlipping? "flip": "blit");
+    }
+
+    @NotNull
+    public static String getActiveRenderingText() {
+        return "Active Rendering";
+    }
+
+    @NotNull
+    public static String getActiveRenderingShortDes() {
+        return "Draw and present frames directly instead of through repaint [Shift-A]";
+    }
+
+    @NotNull
+    public static String getDynamicResolutionText() {
+        return "Dynamic Resolution";
+    }
+
+    @NotNull
+    public static String getDynamicResolutionShortDes() {
+        return "Draw at a reduced resolution while playing when frames take longer than the frame budget [Shift-E]";
+    }
+
+    @NotNull
+    public static String getHeatMapText() {
+        return "Heat Map";
+    }
+
+    @NotNull
+    public static String getHeatMapShortDes() {
+        return "Show a map of the selected metric over points count and times factor. Click a cell to open its table [Shift-H]";
+    }
+
+    @NotNull
+    public static String getHeatMapMetricText() {
+        return "Metric";
+    }
+
+    @NotNull
+    public static String getHeatMapPendingText(int pendingTiles) {
+        return "Computing " + pendingTiles + (pendingTiles == 1? " tile": " tiles");
+    }
+
+    @NotNull
+    public static String getHeatMapCellText(int pointsCount, float timesFactor, @NotNull SweepMetric metric, float value) {
+        final String v = Float.isNaN(value)? "...": (RMath.isInt(value)? String.valueOf((long) value): String.format("%.2f", value));
+        return String.format("Points: %d  |  Times: %.2f  |  %s: %s", pointsCount, timesFactor, metric.displayName, v);
+    }
+
+    @NotNull
+    public static String getAdaptiveQualityText() {
+        return "Adaptive Quality";
+    }
+
+    @NotNull
+    public static String getAdaptiveQualityShortDes() {
+        return "Lower drawing quality while playing when frames take longer than the frame budget [Shift-Q]";
+    }
+
+    @NotNull
+    public static String getBackgroundRenderingText() {
+        return "Background Rendering";
+    }
+
+    @NotNull
+    public static String getBackgroundRenderingShortDes() {
+        return "Draw frames on a separate thread, keeping the controls responsive [Shift-B]";
+    }
+
     @NotNull
     public static String getToggleControlsText(boolean controlsShown) {
         return (controlsShown? "Hide": "Show") + " Dock";
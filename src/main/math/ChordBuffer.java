@@ -0,0 +1,356 @@
+package main.math;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Geometry stage of a times table frame
+ *
+ * <p>
+ * Computes the points around the circle and the chords joining point {@code i} to point {@code (i * timesFactor) % pointsCount},
+ * writing them into primitive {@code float[]} buffers that are reused across frames. Buffers only grow, so once
+ * the largest point count has been seen, computing a frame does not allocate.
+ * <p>
+ * Points come from a {@link PointRing}, so trig is only evaluated when the point count or radius changes
+ * <p>
+ * For large point counts, a level-of-detail stride can be given: only every {@code stride}-th point and chord is computed, so that the cost
+ * of a frame is bounded by what can be resolved on screen rather than by the point count. Decimated frames evaluate trig directly
+ * for the sampled chords instead of building a ring over all points
+ * <p>
+ * When a {@link Viewport} is given and the circle is not wholly inside it, chords are clipped to it and the ones outside are dropped,
+ * so that the cost of drawing a zoomed-in frame depends on the visible chords only. Such frames are computed in double precision and
+ * stored relative to the viewport center ({@link #originX()}, {@link #originY()}), so that float coordinates stay exact at any zoom.
+ * Fractional end points are first interpolated on a cached unit ring for a conservative culling test, and only chords that pass it
+ * get exact trig
+ * <p>
+ * For integral times factors, end points are found with integer modular arithmetic, and a chord that is also produced in reverse
+ * (point {@code j} mapping back to {@code i}) is only emitted once, from the later point, which is the one that would be drawn on top
+ * <p>
+ * Chords are stored flat as {@code x1, y1, x2, y2}, along with the index of the point they start from (used for colouring)
+ */
+public class ChordBuffer {
+
+    /**
+     * Number of floats per chord in {@link #chords()}
+     * */
+    public static final int CHORD_STRIDE = 4;
+
+    @NotNull
+    private final PointRing mPointRing = new PointRing();
+
+    @NotNull
+    private float[] mPointsX = new float[0];
+    @NotNull
+    private float[] mPointsY = new float[0];
+
+    @NotNull
+    private float[] mChords = new float[0];
+    @NotNull
+    private int[] mChordIndices = new int[0];
+
+    /* unit circle in double precision, for culled frames */
+    @NotNull
+    private double[] mUnitCos = new double[0];
+    @NotNull
+    private double[] mUnitSin = new double[0];
+    private int mUnitCount = -1;
+
+    private double mOriginX;
+    private double mOriginY;
+    private boolean mCulled;
+    private int mDuplicateCount;
+
+    private int mPointsCount;
+    private int mSampleCount;
+    private int mChordCount;
+    private int mStride = 1;
+
+    private void ensureCapacity(int sampleCount) {
+        if (mChordIndices.length < sampleCount) {
+            mPointsX = new float[sampleCount];
+            mPointsY = new float[sampleCount];
+            mChords = new float[sampleCount * CHORD_STRIDE];
+            mChordIndices = new int[sampleCount];
+        }
+    }
+
+    /**
+     * @return multiplier of an integral times factor, reduced modulo the points count, or -1 if it is not integral
+     * */
+    private static long integralFactor(float timesFactor, int pointsCount) {
+        return timesFactor >= 0 && RMath.isInt(timesFactor)? (long) timesFactor % pointsCount: -1;
+    }
+
+    /**
+     * @return whether the chord from {@code i} to {@code j = i * k mod n} is also emitted from {@code j}, so can be skipped at {@code i}
+     * */
+    private static boolean isDuplicate(int i, int j, long k, int pointsCount, int stride) {
+        return j > i && j % stride == 0 && j * k % pointsCount == i;
+    }
+
+    private void ensureUnitRing(int pointsCount) {
+        if (mUnitCount == pointsCount)
+            return;
+
+        if (mUnitCos.length < pointsCount) {
+            mUnitCos = new double[pointsCount];
+            mUnitSin = new double[pointsCount];
+        }
+
+        final double delTheta = Math.PI * 2 / pointsCount;
+        for (int i=0; i < pointsCount; i++) {
+            final double theta = i * delTheta + Math.PI;
+            mUnitCos[i] = Math.cos(theta);
+            mUnitSin[i] = Math.sin(theta);
+        }
+
+        mUnitCount = pointsCount;
+    }
+
+    /**
+     * Computes the geometry of a frame
+     *
+     * @param pointsCount number of points around the circle
+     * @param timesFactor the multiplier
+     * @param radius radius of the circle
+     * @param stride level-of-detail stride. Only chords starting at multiples of stride are computed
+     * @param viewport visible region, in coordinates centered at the circle center. Chords outside it are dropped, and the geometry is
+     *                 made relative to its center unless the whole circle is visible. {@code null} to keep everything centered at the circle center
+     * */
+    public void compute(int pointsCount, float timesFactor, float radius, int stride, @Nullable Viewport viewport) {
+        stride = Math.max(1, stride);
+        final int sampleCount = (pointsCount + stride - 1) / stride;
+        ensureCapacity(sampleCount);
+
+        if (viewport != null && !viewport.containsCircle(radius)) {
+            computeCulled(pointsCount, timesFactor, radius, stride, sampleCount, viewport);
+            return;
+        }
+
+        final float[] px = mPointsX, py = mPointsY, chords = mChords;
+        final int[] indices = mChordIndices;
+        final long k = integralFactor(timesFactor, pointsCount);
+        final boolean integral = k >= 0;
+        int count = 0, duplicates = 0;
+
+        if (stride == 1) {
+            final PointRing ring = mPointRing;
+            ring.ensure(pointsCount, radius);
+            System.arraycopy(ring.pointsX(), 0, px, 0, pointsCount);
+            System.arraycopy(ring.pointsY(), 0, py, 0, pointsCount);
+
+            for (int i=0; i < pointsCount; i++) {
+                final double i2 = integral? (double) (i * k % pointsCount): ((double) i * timesFactor) % pointsCount;
+                if (i == i2)
+                    continue;
+                if (integral && isDuplicate(i, (int) i2, k, pointsCount, stride)) {
+                    duplicates++;
+                    continue;
+                }
+
+                final int o = count * CHORD_STRIDE;
+                chords[o] = px[i];
+                chords[o + 1] = py[i];
+                if (integral) {
+                    chords[o + 2] = px[(int) i2];
+                    chords[o + 3] = py[(int) i2];
+                } else {
+                    ring.pointAt((float) i2, chords, o + 2);
+                }
+                indices[count++] = i;
+            }
+        } else {
+            final double delTheta = Math.PI * 2 / pointsCount;
+
+            for (int s=0; s < sampleCount; s++) {
+                final int i = s * stride;
+                final double theta = i * delTheta + Math.PI;
+                px[s] = (float) (Math.cos(theta) * radius);
+                py[s] = (float) (Math.sin(theta) * radius);
+
+                final double i2 = integral? (double) (i * k % pointsCount): ((double) i * timesFactor) % pointsCount;
+                if (i == i2)
+                    continue;
+                if (integral && isDuplicate(i, (int) i2, k, pointsCount, stride)) {
+                    duplicates++;
+                    continue;
+                }
+
+                final double theta2 = i2 * delTheta + Math.PI;
+                final int o = count * CHORD_STRIDE;
+                chords[o] = px[s];
+                chords[o + 1] = py[s];
+                chords[o + 2] = (float) (Math.cos(theta2) * radius);
+                chords[o + 3] = (float) (Math.sin(theta2) * radius);
+                indices[count++] = i;
+            }
+        }
+
+        mPointsCount = pointsCount;
+        mSampleCount = sampleCount;
+        mChordCount = count;
+        mDuplicateCount = duplicates;
+        mStride = stride;
+        mOriginX = mOriginY = 0;
+        mCulled = false;
+    }
+
+    private void computeCulled(int pointsCount, float timesFactor, float radius, int stride, int sampleCount, @NotNull Viewport viewport) {
+        ensureUnitRing(pointsCount);
+
+        final double[] cos = mUnitCos, sin = mUnitSin;
+        final double ox = viewport.centerX(), oy = viewport.centerY();
+        final double delTheta = Math.PI * 2 / pointsCount;
+        // an interpolated end point is off the circle by at most the sagitta of one ring step
+        final double cullMargin = radius * (1 - Math.cos(delTheta / 2)) * 1.01 + 1e-12 * radius;
+        final float[] px = mPointsX, py = mPointsY, chords = mChords;
+        final int[] indices = mChordIndices;
+        final long k = integralFactor(timesFactor, pointsCount);
+        final boolean integral = k >= 0;
+        int count = 0, duplicates = 0;
+
+        for (int s=0; s < sampleCount; s++) {
+            final int i = s * stride;
+            final double x1 = cos[i] * radius - ox, y1 = sin[i] * radius - oy;
+            px[s] = (float) x1;
+            py[s] = (float) y1;
+
+            final double i2 = integral? (double) (i * k % pointsCount): ((double) i * timesFactor) % pointsCount;
+            if (i == i2)
+                continue;
+            if (integral && isDuplicate(i, (int) i2, k, pointsCount, stride)) {
+                duplicates++;
+                continue;
+            }
+
+            final int j = (int) i2;
+            double x2, y2;
+            if (j == i2) {
+                x2 = cos[j] * radius - ox;
+                y2 = sin[j] * radius - oy;
+            } else {
+                final int j1 = j + 1 == pointsCount? 0: j + 1;
+                final double f = i2 - j;
+                x2 = (cos[j] + (cos[j1] - cos[j]) * f) * radius - ox;
+                y2 = (sin[j] + (sin[j1] - sin[j]) * f) * radius - oy;
+                if (!viewport.intersectsSegment(x1, y1, x2, y2, cullMargin))
+                    continue;
+
+                final double theta2 = i2 * delTheta + Math.PI;
+                x2 = Math.cos(theta2) * radius - ox;
+                y2 = Math.sin(theta2) * radius - oy;
+            }
+
+            if (viewport.clip(x1, y1, x2, y2, chords, count * CHORD_STRIDE)) {
+                indices[count++] = i;
+            }
+        }
+
+        mPointsCount = pointsCount;
+        mSampleCount = sampleCount;
+        mChordCount = count;
+        mDuplicateCount = duplicates;
+        mStride = stride;
+        mOriginX = ox;
+        mOriginY = oy;
+        mCulled = true;
+    }
+
+    public void compute(int pointsCount, float timesFactor, float radius, int stride) {
+        compute(pointsCount, timesFactor, radius, stride, null);
+    }
+
+    public void compute(int pointsCount, float timesFactor, float radius) {
+        compute(pointsCount, timesFactor, radius, 1);
+    }
+
+    /**
+     * @return the cached ring of points. Invalidate it when the point count or the circle radius changes
+     * */
+    @NotNull
+    public PointRing pointRing() {
+        return mPointRing;
+    }
+
+    public int pointsCount() {
+        return mPointsCount;
+    }
+
+    /**
+     * @return number of points in {@link #pointsX()} and {@link #pointsY()}, which is the points count decimated by {@link #stride()}
+     * */
+    public int sampleCount() {
+        return mSampleCount;
+    }
+
+    public int chordCount() {
+        return mChordCount;
+    }
+
+    /**
+     * @return number of reversed duplicate chords skipped in the last computed frame (integral times factors only)
+     * */
+    public int duplicateCount() {
+        return mDuplicateCount;
+    }
+
+    /**
+     * @return level-of-detail stride of the last computed frame
+     * */
+    public int stride() {
+        return mStride;
+    }
+
+    /**
+     * @return whether the last computed frame was clipped to a viewport, and so is relative to its center
+     * */
+    public boolean culled() {
+        return mCulled;
+    }
+
+    /**
+     * @return x of the point, relative to the circle center, that the coordinates of the last computed frame are relative to
+     * */
+    public double originX() {
+        return mOriginX;
+    }
+
+    /**
+     * @return y of the point, relative to the circle center, that the coordinates of the last computed frame are relative to
+     * */
+    public double originY() {
+        return mOriginY;
+    }
+
+    /**
+     * @return x coordinates of the sampled points. Only first {@link #sampleCount()} entries are valid
+     * */
+    @NotNull
+    public float[] pointsX() {
+        return mPointsX;
+    }
+
+    /**
+     * @return y coordinates of the sampled points. Only first {@link #sampleCount()} entries are valid
+     * */
+    @NotNull
+    public float[] pointsY() {
+        return mPointsY;
+    }
+
+    /**
+     * @return chord end points as {@code x1, y1, x2, y2}. Only first {@link #chordCount()} * {@link #CHORD_STRIDE} entries are valid
+     * */
+    @NotNull
+    public float[] chords() {
+        return mChords;
+    }
+
+    /**
+     * @return index of the start point of each chord. Only first {@link #chordCount()} entries are valid
+     * */
+    @NotNull
+    public int[] chordIndices() {
+        return mChordIndices;
+    }
+}
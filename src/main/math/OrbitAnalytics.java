@@ -0,0 +1,478 @@
+package main.math;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Orbit statistics of the multiplication map {@code f(i) = k * i mod n} of a times table with integral factor, for {@code n} up to {@link #MAX_N}
+ *
+ * <p>
+ * {@link #analyze} does not walk the points. By the Chinese remainder theorem {@code Z_n = Z_m x Z_r}, where {@code m} collects the primes
+ * of {@code n} that divide {@code k}. Multiplication by {@code k} is nilpotent on {@code Z_m} and a permutation on {@code Z_r}, so the
+ * periodic points are the multiples of {@code m}, and the rest run into them through trees. On {@code Z_r}, the points {@code x} with
+ * {@code r / gcd(x, r) = e} are the units of {@code Z_e}, which fall into {@code phi(e) / ord_e(k)} cycles of length {@code ord_e(k)}.
+ * A table is analyzed from the factorization of {@code n} and one multiplicative order per divisor of {@code r}, in well under a millisecond
+ * <p>
+ * {@link #traverseCycles} finds the same cycles by walking them, in parallel segments over a shared visited bitmap. It is meant for
+ * cross-checking and for tables small enough to walk
+ * <p>
+ * Cycle lengths are streamed to a {@link CycleSink} as primitives, nothing is allocated per cycle or per point
+ */
+public final class OrbitAnalytics {
+
+    /**
+     * Largest supported {@code n}: products of two residues must fit in a long
+     * */
+    public static final long MAX_N = 3_037_000_499L;
+
+    /**
+     * Starting points per parallel segment of {@link #traverseCycles}
+     * */
+    public static final int TRAVERSE_SEGMENT = 1 << 16;
+
+    public interface CycleSink {
+        /**
+         * @param length cycle length, 1 for fixed points
+         * @param count number of cycles of that length
+         * */
+        void accept(long length, long count);
+    }
+
+    /**
+     * Totals of an analyzed table
+     * */
+    public static final class Summary {
+
+        public final long pointsCount;
+        /**
+         * Factor reduced modulo the points count
+         * */
+        public final long factor;
+
+        /**
+         * Points that lie on a cycle. The others are transient, and reach a cycle within {@link #maxTailLength} steps
+         * */
+        public final long periodicPoints;
+        /**
+         * All cycles, fixed points included
+         * */
+        public final long cycles;
+        public final long fixedPoints;
+        public final long maxCycleLength;
+        public final long maxTailLength;
+
+        /**
+         * Multiplicative order of the factor on the periodic points: the least {@code t > 0} with {@code f^t(x) = x} for all of them.
+         * When the factor is coprime to the points count, this is its multiplicative order modulo the points count
+         * */
+        public final long order;
+
+        public Summary(long pointsCount, long factor, long periodicPoints, long cycles, long fixedPoints, long maxCycleLength, long maxTailLength, long order) {
+            this.pointsCount = pointsCount;
+            this.factor = factor;
+            this.periodicPoints = periodicPoints;
+            this.cycles = cycles;
+            this.fixedPoints = fixedPoints;
+            this.maxCycleLength = maxCycleLength;
+            this.maxTailLength = maxTailLength;
+            this.order = order;
+        }
+
+        public long transientPoints() {
+            return pointsCount - periodicPoints;
+        }
+
+        @Override
+        public String toString() {
+            return "Summary{n=" + pointsCount + ", k=" + factor + ", cycles=" + cycles + ", fixedPoints=" + fixedPoints + ", periodic=" + periodicPoints +
+                    ", maxCycle=" + maxCycleLength + ", maxTail=" + maxTailLength + ", order=" + order + "}";
+        }
+    }
+
+
+    /* Number theory */
+
+    public static long gcd(long a, long b) {
+        while (b != 0) {
+            final long t = a % b;
+            a = b;
+            b = t;
+        }
+
+        return Math.abs(a);
+    }
+
+    private static long mulMod(long a, long b, long mod) {
+        return a * b % mod;
+    }
+
+    public static long powMod(long base, long exponent, long mod) {
+        if (mod == 1)
+            return 0;
+
+        long result = 1;
+        base %= mod;
+        while (exponent > 0) {
+            if ((exponent & 1) != 0) {
+                result = mulMod(result, base, mod);
+            }
+
+            base = mulMod(base, base, mod);
+            exponent >>= 1;
+        }
+
+        return result;
+    }
+
+    /**
+     * Prime factorization by trial division. Fine up to {@link #MAX_N}, which needs divisors up to ~55k
+     *
+     * @param primes receives distinct primes in ascending order
+     * @param exponents receives the exponent of each prime
+     * @return number of distinct primes (at most 15 below {@link #MAX_N})
+     * */
+    private static int factorize(long n, @NotNull long[] primes, @NotNull int[] exponents) {
+        int count = 0;
+        for (long p = 2; p * p <= n; p += (p == 2? 1: 2)) {
+            if (n % p == 0) {
+                int e = 0;
+                do {
+                    n /= p;
+                    e++;
+                } while (n % p == 0);
+
+                primes[count] = p;
+                exponents[count++] = e;
+            }
+        }
+
+        if (n > 1) {
+            primes[count] = n;
+            exponents[count++] = 1;
+        }
+
+        return count;
+    }
+
+    private static long lcm(long a, long b) {
+        return a / gcd(a, b) * b;
+    }
+
+    /**
+     * @return least {@code t > 0} with {@code a^t = 1 (mod e)}, given a multiple of it whose prime factors are all in {@code primes}
+     * */
+    private static long orderDividing(long a, long e, long multiple, @NotNull long[] primes, int primeCount) {
+        if (e == 1)
+            return 1;
+
+        long order = multiple;
+        for (int i=0; i < primeCount; i++) {
+            final long p = primes[i];
+            while (order % p == 0 && powMod(a, order / p, e) == 1) {
+                order /= p;
+            }
+        }
+
+        return order;
+    }
+
+    /**
+     * Carmichael function of a prime power
+     * */
+    private static long carmichael(long p, int exponent) {
+        if (exponent == 0)
+            return 1;
+        if (p == 2)
+            return exponent == 1? 1: exponent == 2? 2: 1L << (exponent - 2);
+
+        long v = p - 1;
+        for (int i=1; i < exponent; i++) {
+            v *= p;
+        }
+
+        return v;
+    }
+
+    private static void checkPointsCount(long n) {
+        if (n <= 0 || n > MAX_N)
+            throw new IllegalArgumentException("points count must be in [1, " + MAX_N + "], given " + n);
+    }
+
+    /**
+     * @return multiplicative order of {@code k} modulo {@code n}, or -1 if they are not coprime
+     * */
+    public static long multiplicativeOrder(long k, long n) {
+        checkPointsCount(n);
+        k = Math.floorMod(k, n);
+        if (gcd(k, n) != 1)
+            return -1;
+
+        final long[] primes = new long[64];
+        final int[] exponents = new int[64];
+        final int count = factorize(n, primes, exponents);
+
+        long lambda = 1;
+        for (int i=0; i < count; i++) {
+            lambda = lcm(lambda, carmichael(primes[i], exponents[i]));
+        }
+
+        final int lambdaPrimes = factorize(lambda, primes, exponents);
+        return orderDividing(k, n, lambda, primes, lambdaPrimes);
+    }
+
+
+    /* Analysis */
+
+    /**
+     * Analyzes the table of {@code n} points and factor {@code k} without walking it
+     *
+     * @param sink receives the cycle length distribution, in ascending order of length, each length once. {@code null} for totals only
+     * */
+    @NotNull
+    public static Summary analyze(long n, long k, @Nullable CycleSink sink) {
+        checkPointsCount(n);
+        k = Math.floorMod(k, n);
+
+        // n = m * r, with r the largest divisor of n coprime to k
+        long r = n, g;
+        while (r > 1 && (g = gcd(r, k)) > 1) {
+            r /= g;
+        }
+
+        final long m = n / r;
+        final long fixedPoints = gcd(Math.floorMod(k - 1, n), n);
+
+        final long[] primes = new long[64];
+        final int[] exponents = new int[64];
+
+        // transient depth: least t with m | k^t
+        long maxTail = 0;
+        if (m > 1) {
+            if (k == 0) {
+                maxTail = 1;
+            } else {
+                final int count = factorize(m, primes, exponents);
+                for (int i=0; i < count; i++) {
+                    int ek = 0;
+                    for (long v = k; v % primes[i] == 0; v /= primes[i]) {
+                        ek++;
+                    }
+
+                    maxTail = Math.max(maxTail, (exponents[i] + ek - 1) / ek);
+                }
+            }
+        }
+
+        // primes of r, and every prime that can divide the Carmichael function of a divisor of r
+        final long[] rPrimes = new long[64];
+        final int[] rExponents = new int[64];
+        final int rCount = factorize(r, rPrimes, rExponents);
+
+        final long[] orderPrimes = new long[64 * 16];
+        int orderPrimeCount = 0;
+        for (int i=0; i < rCount; i++) {
+            orderPrimeCount = addPrime(orderPrimes, orderPrimeCount, rPrimes[i]);
+            final int c = factorize(rPrimes[i] - 1, primes, exponents);
+            for (int j=0; j < c; j++) {
+                orderPrimeCount = addPrime(orderPrimes, orderPrimeCount, primes[j]);
+            }
+        }
+
+        // one cycle class per divisor e of r: phi(e) / ord_e(k) cycles of length ord_e(k)
+        int divisors = 1;
+        for (int i=0; i < rCount; i++) {
+            divisors *= rExponents[i] + 1;
+        }
+
+        final long[] lengths = new long[divisors], counts = new long[divisors];
+        final int[] digits = new int[rCount];
+        for (int d=0; d < divisors; d++) {
+            long e = 1, phi = 1, lambda = 1;
+            for (int i=0; i < rCount; i++) {
+                final int b = digits[i];
+                if (b > 0) {
+                    final long p = rPrimes[i];
+                    long pb = 1;
+                    for (int j=0; j < b; j++) {
+                        pb *= p;
+                    }
+
+                    e *= pb;
+                    phi *= pb / p * (p - 1);
+                    lambda = lcm(lambda, carmichael(p, b));
+                }
+            }
+
+            final long order = orderDividing(k % e, e, lambda, orderPrimes, orderPrimeCount);
+            lengths[d] = order;
+            counts[d] = phi / order;
+
+            // next exponent vector
+            for (int i=0; i < rCount; i++) {
+                if (++digits[i] <= rExponents[i])
+                    break;
+                digits[i] = 0;
+            }
+        }
+
+        // merge equal lengths
+        sortByLength(lengths, counts, divisors);
+        long cycles = 0, maxLength = 0, order = 1;
+        for (int d=0; d < divisors; ) {
+            final long length = lengths[d];
+            long count = 0;
+            for (; d < divisors && lengths[d] == length; d++) {
+                count += counts[d];
+            }
+
+            cycles += count;
+            maxLength = Math.max(maxLength, length);
+            order = lcm(order, length);
+            if (sink != null) {
+                sink.accept(length, count);
+            }
+        }
+
+        return new Summary(n, k, r, cycles, fixedPoints, maxLength, maxTail, order);
+    }
+
+    @NotNull
+    public static Summary analyze(long n, long k) {
+        return analyze(n, k, null);
+    }
+
+    private static int addPrime(@NotNull long[] primes, int count, long p) {
+        for (int i=0; i < count; i++) {
+            if (primes[i] == p)
+                return count;
+        }
+
+        primes[count] = p;
+        return count + 1;
+    }
+
+    /**
+     * Insertion sort of parallel arrays, there are at most a few thousand divisors
+     * */
+    private static void sortByLength(@NotNull long[] lengths, @NotNull long[] counts, int size) {
+        for (int i=1; i < size; i++) {
+            final long l = lengths[i], c = counts[i];
+            int j = i - 1;
+            while (j >= 0 && lengths[j] > l) {
+                lengths[j + 1] = lengths[j];
+                counts[j + 1] = counts[j];
+                j--;
+            }
+
+            lengths[j + 1] = l;
+            counts[j + 1] = c;
+        }
+    }
+
+
+    /* Traversal */
+
+    /**
+     * Finds the cycles of the table by walking them. Only the periodic points (multiples of {@code m}, see above) are started from, split
+     * into segments processed in parallel. A cycle is walked in full only from its smallest point, which then marks all its points in a
+     * visited bitmap of {@code r} bits. Walks from other points stop at the first smaller point, or are skipped if already marked
+     *
+     * @param sink receives {@code (length, 1)} for each cycle, from worker threads concurrently, in no particular order. {@code null} to only count
+     * @return number of cycles, fixed points included
+     * */
+    public static long traverseCycles(long n, long k, @NotNull ForkJoinPool pool, @Nullable CycleSink sink) {
+        checkPointsCount(n);
+        final long factor = Math.floorMod(k, n);
+
+        long r = n, g;
+        while (r > 1 && (g = gcd(r, factor)) > 1) {
+            r /= g;
+        }
+
+        final long m = n / r;
+        final AtomicLongArray visited = new AtomicLongArray((int) ((r + 63) >>> 6));
+        return pool.invoke(new Segment(n, factor, m, visited, sink, 0, r));
+    }
+
+    private static final class Segment extends RecursiveTask<Long> {
+
+        private final long n, k, m;
+        @NotNull
+        private final AtomicLongArray visited;
+        @Nullable
+        private final CycleSink sink;
+        private final long from, to;
+
+        private Segment(long n, long k, long m, @NotNull AtomicLongArray visited, @Nullable CycleSink sink, long from, long to) {
+            this.n = n;
+            this.k = k;
+            this.m = m;
+            this.visited = visited;
+            this.sink = sink;
+            this.from = from;
+            this.to = to;
+        }
+
+        private boolean isVisited(long j) {
+            return (visited.get((int) (j >>> 6)) & (1L << j)) != 0;
+        }
+
+        private void markVisited(long j) {
+            final int word = (int) (j >>> 6);
+            final long bit = 1L << j;
+            long v;
+            while (((v = visited.get(word)) & bit) == 0 && !visited.compareAndSet(word, v, v | bit)) {
+                // retry
+            }
+        }
+
+        @Override
+        protected Long compute() {
+            if (to - from > TRAVERSE_SEGMENT) {
+                final long mid = (from + to) >>> 1;
+                final Segment left = new Segment(n, k, m, visited, sink, from, mid);
+                left.fork();
+                final long right = new Segment(n, k, m, visited, sink, mid, to).compute();
+                return left.join() + right;
+            }
+
+            long cycles = 0;
+            for (long j = from; j < to; j++) {
+                if (isVisited(j))
+                    continue;
+
+                // walk until back at the start, or at a smaller point (which leads the cycle)
+                final long x = j * m;
+                long y = mulMod(x, k, n), length = 1;
+                while (y != x && y / m > j) {
+                    y = mulMod(y, k, n);
+                    length++;
+                }
+
+                if (y != x)
+                    continue;
+
+                y = x;
+                do {
+                    markVisited(y / m);
+                    y = mulMod(y, k, n);
+                } while (y != x);
+
+                cycles++;
+                if (sink != null) {
+                    sink.accept(length, 1);
+                }
+            }
+
+            return cycles;
+        }
+    }
+
+
+    private OrbitAnalytics() {
+    }
+}
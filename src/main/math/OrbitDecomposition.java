@@ -0,0 +1,198 @@
+package main.math;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * Decomposition of the chords of an integral times table into connected walks
+ *
+ * <p>
+ * For an integral factor {@code k}, the chords join each point {@code i} to {@code f(i) = k * i mod n}, which makes a functional graph:
+ * every point has one outgoing chord, and the graph splits into cycles with trees hanging off them. Walks are started from the leaves
+ * of the trees first, then from the points left on bare cycles, and each one follows {@code f} until it reaches an already visited point.
+ * Every chord ends up in exactly one walk, and the walks are as long as the graph allows, so a frame can be drawn as a few polylines
+ * instead of {@code n} separate segments
+ * <p>
+ * Like {@link ChordBuffer}, a chord that is also produced in reverse (a cycle of length 2) is only kept from the later point, and fixed points
+ * have no chord
+ * <p>
+ * All state is in primitive arrays that only grow, and the decomposition is cached by {@code (n, k)}. Not thread-safe
+ */
+public class OrbitDecomposition {
+
+    @NotNull
+    private int[] mNext = new int[0];
+    @NotNull
+    private int[] mInDegree = new int[0];
+    /* id of the walk that first visited a point, 0 if not visited */
+    @NotNull
+    private int[] mVisit = new int[0];
+
+    @NotNull
+    private int[] mWalks = new int[0];
+    @NotNull
+    private int[] mWalkStarts = new int[1];
+    private int mWalksLength;
+    private int mWalkCount;
+    private int mLastWalkId;
+
+    private int mPointsCount = -1;
+    private long mFactor = -1;
+    private int mCycleCount;
+    private int mFixedPointCount;
+
+    private void ensureCapacity(int pointsCount) {
+        if (mNext.length < pointsCount) {
+            mNext = new int[pointsCount];
+            mInDegree = new int[pointsCount];
+            mVisit = new int[pointsCount];
+            mWalks = new int[pointsCount * 2];      // every point once, plus the end point of each walk
+            mWalkStarts = new int[pointsCount + 1];
+        }
+    }
+
+    /**
+     * Decomposes the table of {@code pointsCount} points and the given integral factor, unless it is the last one decomposed
+     *
+     * @param factor non-negative integral times factor
+     * @return whether the decomposition was recomputed
+     * */
+    public boolean compute(int pointsCount, long factor) {
+        if (pointsCount <= 0 || factor < 0)
+            throw new IllegalArgumentException("points count must be positive and factor non-negative, given " + pointsCount + ", " + factor);
+
+        factor %= pointsCount;
+        if (mPointsCount == pointsCount && mFactor == factor)
+            return false;
+
+        ensureCapacity(pointsCount);
+        final int[] next = mNext, inDegree = mInDegree;
+        Arrays.fill(inDegree, 0, pointsCount, 0);
+        Arrays.fill(mVisit, 0, pointsCount, 0);
+
+        for (int i=0; i < pointsCount; i++) {
+            final int j = (int) (i * factor % pointsCount);
+            next[i] = j;
+            if (j != i) {
+                inDegree[j]++;
+            }
+        }
+
+        mWalksLength = mWalkCount = mLastWalkId = mCycleCount = mFixedPointCount = 0;
+
+        // tree leaves first, so that walks run down the trees and on around their cycles
+        for (int i=0; i < pointsCount; i++) {
+            if (inDegree[i] == 0 && mVisit[i] == 0) {
+                walk(i);
+            }
+        }
+
+        // bare cycles and fixed points
+        for (int i=0; i < pointsCount; i++) {
+            if (mVisit[i] == 0) {
+                walk(i);
+            }
+        }
+
+        mWalkStarts[mWalkCount] = mWalksLength;
+        mPointsCount = pointsCount;
+        mFactor = factor;
+        return true;
+    }
+
+    private void walk(int start) {
+        final int[] next = mNext, visit = mVisit, walks = mWalks;
+        final int id = ++mLastWalkId;
+        final int begin = mWalksLength;
+
+        int i = start;
+        visit[i] = id;
+        walks[mWalksLength++] = i;
+
+        while (true) {
+            final int j = next[i];
+            if (j == i) {
+                mFixedPointCount++;
+                break;
+            }
+
+            if (j > i && next[j] == i) {
+                mCycleCount++;          // 2-cycle, its chord is kept from j
+                break;
+            }
+
+            walks[mWalksLength++] = j;
+            if (visit[j] != 0) {
+                if (visit[j] == id) {
+                    mCycleCount++;      // closed a cycle of its own
+                }
+                break;
+            }
+
+            visit[j] = id;
+            i = j;
+        }
+
+        if (mWalksLength - begin < 2) {
+            mWalksLength = begin;       // no chord
+        } else {
+            mWalkStarts[mWalkCount++] = begin;
+        }
+    }
+
+    public int pointsCount() {
+        return mPointsCount;
+    }
+
+    /**
+     * @return the factor of the last decomposition, reduced modulo the points count
+     * */
+    public long factor() {
+        return mFactor;
+    }
+
+    public int walkCount() {
+        return mWalkCount;
+    }
+
+    /**
+     * @return points of all walks, back to back. Walk {@code w} spans {@code [walkStarts()[w], walkStarts()[w + 1])}, and each pair of
+     * consecutive points within it is a chord
+     * */
+    @NotNull
+    public int[] walks() {
+        return mWalks;
+    }
+
+    /**
+     * @return start offset of each walk in {@link #walks()}, followed by the total length. Only first {@link #walkCount()} + 1 entries are valid
+     * */
+    @NotNull
+    public int[] walkStarts() {
+        return mWalkStarts;
+    }
+
+    /**
+     * @return number of chords in all walks
+     * */
+    public int chordCount() {
+        return mWalksLength - mWalkCount;
+    }
+
+    /**
+     * @return number of cycles of length 2 or more
+     * */
+    public int cycleCount() {
+        return mCycleCount;
+    }
+
+    public int fixedPointCount() {
+        return mFixedPointCount;
+    }
+
+    @Override
+    public String toString() {
+        return "OrbitDecomposition{n=" + mPointsCount + ", k=" + mFactor + ", walks=" + mWalkCount + ", chords=" + chordCount() + ", cycles=" + mCycleCount + ", fixedPoints=" + mFixedPointCount + "}";
+    }
+}
@@ -0,0 +1,238 @@
+package main.math;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Evaluates a {@link SweepMetric} over a grid of {@code (pointsCount, timesFactor)} on a {@link ForkJoinPool}
+ *
+ * <p>
+ * Rows are point counts {@code pointsMin, pointsMin + 1, ...} and columns are times factors {@code timesFactorStart + col * timesFactorStep}.
+ * Cells are split into ranges processed in parallel. Each range owns a {@link ChordBuffer} for scratch, so its point ring is only rebuilt
+ * when the range crosses into the next row
+ * <p>
+ * Results are a row-major {@code float} matrix, written in a compact binary form (see {@link #write(OutputStream)}): a header of
+ * {@link #MAGIC}, {@link #VERSION}, metric, grid, followed by the big-endian float32 cells
+ */
+public class ParameterSweep {
+
+    public static final int MAGIC = 0x54545357;      // "TTSW"
+    public static final int VERSION = 1;
+
+    /**
+     * Cells per parallel task
+     * */
+    public static final int CELLS_PER_TASK = 4096;
+
+    @NotNull
+    public final SweepMetric metric;
+    public final int pointsMin;
+    public final int rows;
+    public final float timesFactorStart;
+    public final float timesFactorStep;
+    public final int columns;
+
+    @NotNull
+    private final float[] mValues;
+    @NotNull
+    private final AtomicLong mCellsDone = new AtomicLong();
+    private volatile boolean mCancelled;
+
+    /**
+     * @param pointsMin point count of the first row
+     * @param pointsMax point count of the last row, inclusive
+     * @param timesFactorStart times factor of the first column
+     * @param timesFactorEnd times factor of the last column, inclusive (to the nearest step)
+     * @param timesFactorStep times factor increment between columns
+     * */
+    public ParameterSweep(@NotNull SweepMetric metric, int pointsMin, int pointsMax, float timesFactorStart, float timesFactorEnd, float timesFactorStep) {
+        if (pointsMin <= 0 || pointsMax < pointsMin || !(timesFactorStep > 0) || timesFactorEnd < timesFactorStart)
+            throw new IllegalArgumentException("invalid sweep grid: points [" + pointsMin + ", " + pointsMax + "], times factor [" + timesFactorStart + ", " + timesFactorEnd + "] step " + timesFactorStep);
+
+        this.metric = metric;
+        this.pointsMin = pointsMin;
+        this.rows = pointsMax - pointsMin + 1;
+        this.timesFactorStart = timesFactorStart;
+        this.timesFactorStep = timesFactorStep;
+        this.columns = (int) Math.round((timesFactorEnd - (double) timesFactorStart) / timesFactorStep) + 1;
+
+        final long cells = (long) rows * columns;
+        if (cells > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("sweep grid too large: " + rows + " x " + columns);
+
+        mValues = new float[(int) cells];
+    }
+
+    private ParameterSweep(@NotNull SweepMetric metric, int pointsMin, int rows, float timesFactorStart, float timesFactorStep, int columns, @NotNull float[] values) {
+        this.metric = metric;
+        this.pointsMin = pointsMin;
+        this.rows = rows;
+        this.timesFactorStart = timesFactorStart;
+        this.timesFactorStep = timesFactorStep;
+        this.columns = columns;
+        mValues = values;
+    }
+
+    public int pointsCountAt(int row) {
+        return pointsMin + row;
+    }
+
+    /**
+     * Times factor of a column. Computed in double and rounded once, so that whole values land exactly on integers
+     * */
+    public float timesFactorAt(int column) {
+        return (float) (timesFactorStart + column * (double) timesFactorStep);
+    }
+
+    public long cellCount() {
+        return (long) rows * columns;
+    }
+
+    public float get(int row, int column) {
+        return mValues[row * columns + column];
+    }
+
+    /**
+     * @return the cells, row-major
+     * */
+    @NotNull
+    public float[] values() {
+        return mValues;
+    }
+
+    /**
+     * @return cells evaluated so far by {@link #compute}, for progress. Thread-safe
+     * */
+    public long cellsDone() {
+        return mCellsDone.get();
+    }
+
+    /**
+     * Stops a running {@link #compute} as soon as its current tasks notice. Thread-safe
+     * */
+    public void cancel() {
+        mCancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return mCancelled;
+    }
+
+    /**
+     * Evaluates all cells, blocking until done
+     *
+     * @throws CancellationException if {@link #cancel()} was called
+     * */
+    public void compute(@NotNull ForkJoinPool pool) {
+        mCellsDone.set(0);
+        pool.invoke(new Cells(0, mValues.length));
+        if (mCancelled)
+            throw new CancellationException("sweep cancelled after " + mCellsDone.get() + " of " + mValues.length + " cells");
+    }
+
+    private final class Cells extends RecursiveAction {
+
+        private final int from, to;
+
+        private Cells(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (mCancelled)
+                return;
+
+            if (to - from > CELLS_PER_TASK) {
+                final int mid = (from + to) >>> 1;
+                invokeAll(new Cells(from, mid), new Cells(mid, to));
+                return;
+            }
+
+            final ChordBuffer geometry = new ChordBuffer();
+            final SweepMetric metric = ParameterSweep.this.metric;
+            final float[] values = mValues;
+            for (int cell = from; cell < to; cell++) {
+                values[cell] = metric.evaluate(pointsCountAt(cell / columns), timesFactorAt(cell % columns), geometry);
+            }
+
+            mCellsDone.addAndGet(to - from);
+        }
+    }
+
+
+    /* Binary matrix */
+
+    public void write(@NotNull OutputStream out) throws IOException {
+        final DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(metric.ordinal());
+        data.writeInt(pointsMin);
+        data.writeInt(rows);
+        data.writeFloat(timesFactorStart);
+        data.writeFloat(timesFactorStep);
+        data.writeInt(columns);
+        for (float v: mValues) {
+            data.writeFloat(v);
+        }
+
+        data.flush();
+    }
+
+    public void write(@NotNull Path path) throws IOException {
+        try (OutputStream out = Files.newOutputStream(path)) {
+            write(out);
+        }
+    }
+
+    @NotNull
+    public static ParameterSweep read(@NotNull InputStream in) throws IOException {
+        final DataInputStream data = new DataInputStream(new BufferedInputStream(in, 1 << 16));
+        if (data.readInt() != MAGIC)
+            throw new IOException("not a sweep matrix");
+
+        final int version = data.readInt();
+        if (version != VERSION)
+            throw new IOException("unsupported sweep matrix version " + version);
+
+        final int metricOrdinal = data.readInt();
+        final SweepMetric[] metrics = SweepMetric.sharedValues();
+        if (metricOrdinal < 0 || metricOrdinal >= metrics.length)
+            throw new IOException("unknown sweep metric " + metricOrdinal);
+
+        final int pointsMin = data.readInt(), rows = data.readInt();
+        final float timesFactorStart = data.readFloat(), timesFactorStep = data.readFloat();
+        final int columns = data.readInt();
+        if (rows <= 0 || columns <= 0 || (long) rows * columns > Integer.MAX_VALUE - 8)
+            throw new IOException("invalid sweep matrix size " + rows + " x " + columns);
+
+        final float[] values = new float[rows * columns];
+        for (int i=0; i < values.length; i++) {
+            values[i] = data.readFloat();
+        }
+
+        return new ParameterSweep(metrics[metricOrdinal], pointsMin, rows, timesFactorStart, timesFactorStep, columns, values);
+    }
+
+    @NotNull
+    public static ParameterSweep read(@NotNull Path path) throws IOException {
+        try (InputStream in = Files.newInputStream(path)) {
+            return read(in);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ParameterSweep{metric=" + metric + ", points=[" + pointsMin + ", " + (pointsMin + rows - 1) + "], timesFactor=[" + timesFactorStart + ", " + timesFactorAt(columns - 1) +
+                "] step " + timesFactorStep + ", cells=" + cellCount() + ", done=" + cellsDone() + "}";
+    }
+}
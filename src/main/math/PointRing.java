@@ -0,0 +1,130 @@
+package main.math;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Cache of the points around the circle, keyed by (pointsCount, radius)
+ *
+ * <p>
+ * Point {@code i} lies at angle {@code i * delTheta + PI}. Integral indices are looked up directly, and fractional indices
+ * are resolved by angle-addition from the preceding cached point, using {@link RMath#cosSmall(float)} and
+ * {@link RMath#sinSmall(float)} for the sub-step angle. No full trig is evaluated unless the ring is rebuilt.
+ */
+public class PointRing {
+
+    @NotNull
+    private float[] mCos = new float[0];
+    @NotNull
+    private float[] mSin = new float[0];
+    @NotNull
+    private float[] mX = new float[0];
+    @NotNull
+    private float[] mY = new float[0];
+
+    private int mCount = -1;
+    private int mUnitCount = -1;
+    private float mRadius = Float.NaN;
+    private float mDelTheta;
+
+    /**
+     * Rebuilds the ring if the key has changed. Trig is only evaluated if the count has changed, a change of radius just rescales
+     *
+     * @return whether the ring was rebuilt
+     * */
+    public boolean ensure(int count, float radius) {
+        if (mCount == count && mRadius == radius)
+            return false;
+
+        if (mCos.length < count) {
+            mCos = new float[count];
+            mSin = new float[count];
+            mX = new float[count];
+            mY = new float[count];
+            mUnitCount = -1;
+        }
+
+        final float delTheta = RMath.TWO_PI / count;
+        if (mUnitCount != count) {
+            for (int i=0; i < count; i++) {
+                final double theta = i * delTheta + RMath.PI;
+                mCos[i] = (float) Math.cos(theta);
+                mSin[i] = (float) Math.sin(theta);
+            }
+
+            mUnitCount = count;
+        }
+
+        for (int i=0; i < count; i++) {
+            mX[i] = mCos[i] * radius;
+            mY[i] = mSin[i] * radius;
+        }
+
+        mCount = count;
+        mRadius = radius;
+        mDelTheta = delTheta;
+        return true;
+    }
+
+    /**
+     * Forces the ring to be rebuilt on next {@link #ensure(int, float)}
+     * */
+    public void invalidate() {
+        mCount = -1;
+        mRadius = Float.NaN;
+    }
+
+    public int count() {
+        return mCount;
+    }
+
+    public float radius() {
+        return mRadius;
+    }
+
+    public float delTheta() {
+        return mDelTheta;
+    }
+
+    /**
+     * @return x coordinates of the points. Only first {@link #count()} entries are valid
+     * */
+    @NotNull
+    public float[] pointsX() {
+        return mX;
+    }
+
+    /**
+     * @return y coordinates of the points. Only first {@link #count()} entries are valid
+     * */
+    @NotNull
+    public float[] pointsY() {
+        return mY;
+    }
+
+    /**
+     * Writes the point at a fractional index into {@code dest[offset], dest[offset + 1]}
+     *
+     * @param index point index, in range [0, count)
+     * */
+    public void pointAt(float index, @NotNull float[] dest, int offset) {
+        int j = (int) index;
+        final float frac = index - j;
+        if (j >= mCount) {
+            j -= mCount;
+        }
+
+        if (frac == 0) {
+            dest[offset] = mX[j];
+            dest[offset + 1] = mY[j];
+            return;
+        }
+
+        // cos(a + b), sin(a + b) with b = frac * delTheta
+        final float b = frac * mDelTheta;
+        final float cb = RMath.cosSmall(b), sb = RMath.sinSmall(b);
+        final float ca = mCos[j], sa = mSin[j];
+
+        dest[offset] = (ca * cb - sa * sb) * mRadius;
+        dest[offset + 1] = (sa * cb + ca * sb) * mRadius;
+    }
+}
@@ -35,6 +35,22 @@ public class RMath {
         return (float) Math.sin(theta);
     }
 
+    /**
+     * Cosine of a small angle by its Taylor series. Accurate to float precision for |theta| <= PI / 5
+     * */
+    public static float cosSmall(float theta) {
+        final float t2 = theta * theta;
+        return 1 - t2 / 2 * (1 - t2 / 12 * (1 - t2 / 30 * (1 - t2 / 56)));
+    }
+
+    /**
+     * Sine of a small angle by its Taylor series. Accurate to float precision for |theta| <= PI / 5
+     * */
+    public static float sinSmall(float theta) {
+        final float t2 = theta * theta;
+        return theta * (1 - t2 / 6 * (1 - t2 / 20 * (1 - t2 / 42 * (1 - t2 / 72))));
+    }
+
     public static float lerp(float start, float stop, float amt) {
         return start + (stop-start) * amt;
     }
@@ -0,0 +1,91 @@
+package main.math;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.Unmodifiable;
+
+/**
+ * Metrics a {@link ParameterSweep} can evaluate for a table of {@code (pointsCount, timesFactor)}
+ */
+public enum SweepMetric {
+
+    /**
+     * Chords drawn, after fixed points and reversed duplicates are dropped (see {@link ChordBuffer})
+     * */
+    CHORD_COUNT("Chords"),
+
+    /**
+     * Total length of the drawn chords, on a circle of radius 1
+     * */
+    CHORD_LENGTH("Chord Length"),
+
+    /**
+     * Cycles of {@code i -> k * i mod n}, fixed points included (see {@link OrbitAnalytics}). Only defined for integral times factors, NaN otherwise
+     * */
+    CYCLE_COUNT("Cycles");
+
+
+    @NotNull
+    public final String displayName;
+
+    SweepMetric(@NotNull String displayName) {
+        this.displayName = displayName;
+    }
+
+    /**
+     * @param geometry scratch buffer of the calling thread
+     * */
+    public float evaluate(int pointsCount, float timesFactor, @NotNull ChordBuffer geometry) {
+        return switch (this) {
+            case CHORD_COUNT -> {
+                geometry.compute(pointsCount, timesFactor, 1);
+                yield geometry.chordCount();
+            }
+
+            case CHORD_LENGTH -> {
+                geometry.compute(pointsCount, timesFactor, 1);
+                final float[] chords = geometry.chords();
+                double length = 0;
+                for (int o=0, end = geometry.chordCount() * ChordBuffer.CHORD_STRIDE; o < end; o += ChordBuffer.CHORD_STRIDE) {
+                    final double dx = chords[o + 2] - chords[o], dy = chords[o + 3] - chords[o + 1];
+                    length += Math.sqrt(dx * dx + dy * dy);
+                }
+
+                yield (float) length;
+            }
+
+            case CYCLE_COUNT -> timesFactor >= 0 && RMath.isInt(timesFactor)? OrbitAnalytics.analyze(pointsCount, (long) timesFactor).cycles: Float.NaN;
+        };
+    }
+
+    /**
+     * @return value mapped to [0, 1] relative to the points count, so that tables of different sizes are comparable. NaN stays NaN
+     * */
+    public float normalized(float value, int pointsCount) {
+        final float v = switch (this) {
+            case CHORD_COUNT -> value / pointsCount;
+            case CHORD_LENGTH -> value / (2f * pointsCount);      // chords are at most a diameter long
+            case CYCLE_COUNT -> (float) (Math.log1p(value) / Math.log1p(pointsCount));
+        };
+
+        return Float.isNaN(v)? v: RMath.constraint(0f, 1f, v);
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+
+
+    @Nullable
+    @Unmodifiable
+    private static SweepMetric[] sValues;
+
+    public static SweepMetric[] sharedValues() {
+        if (sValues == null) {
+            sValues = values();
+        }
+
+        return sValues;
+    }
+}
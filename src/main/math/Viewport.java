@@ -0,0 +1,155 @@
+package main.math;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Visible region of the geometry: an axis-aligned rectangle around a center point, in geometry coordinates (double precision).
+ *
+ * <p>
+ * Coordinates passed to {@link #containsPoint} and {@link #clip} are relative to the center, so that geometry far from the origin
+ * can be handed to float renderers without losing precision when zoomed in deep. Chords are clipped with the Liang-Barsky algorithm
+ * <p>
+ * Not thread-safe, meant to be reused across frames
+ */
+public class Viewport {
+
+    private double mCenterX;
+    private double mCenterY;
+    private double mHalfWidth = Double.POSITIVE_INFINITY;
+    private double mHalfHeight = Double.POSITIVE_INFINITY;
+
+    /* visible parameter range of the last clipped segment */
+    private double mClipT0;
+    private double mClipT1;
+
+    /**
+     * @param centerX x of the center, in geometry coordinates
+     * @param centerY y of the center, in geometry coordinates
+     * @param halfWidth half of the visible width, including any margin
+     * @param halfHeight half of the visible height, including any margin
+     * */
+    public void set(double centerX, double centerY, double halfWidth, double halfHeight) {
+        mCenterX = centerX;
+        mCenterY = centerY;
+        mHalfWidth = Math.abs(halfWidth);
+        mHalfHeight = Math.abs(halfHeight);
+    }
+
+    public double centerX() {
+        return mCenterX;
+    }
+
+    public double centerY() {
+        return mCenterY;
+    }
+
+    public double halfWidth() {
+        return mHalfWidth;
+    }
+
+    public double halfHeight() {
+        return mHalfHeight;
+    }
+
+    /**
+     * @return whether the whole circle of given radius around the geometry origin is visible
+     * */
+    public boolean containsCircle(double radius) {
+        return Math.abs(mCenterX) + radius <= mHalfWidth && Math.abs(mCenterY) + radius <= mHalfHeight;
+    }
+
+    /**
+     * @return whether the outline of the circle of given radius around the geometry origin passes through the viewport, widened by a margin
+     * */
+    public boolean intersectsCircleOutline(double radius, double margin) {
+        final double ax = Math.abs(mCenterX), ay = Math.abs(mCenterY);
+        final double nearX = Math.max(0, ax - mHalfWidth), nearY = Math.max(0, ay - mHalfHeight);
+        final double farX = ax + mHalfWidth, farY = ay + mHalfHeight;
+
+        return Math.hypot(nearX, nearY) <= radius + margin && Math.hypot(farX, farY) >= radius - margin;
+    }
+
+    /**
+     * @param x x relative to the center
+     * @param y y relative to the center
+     * */
+    public boolean containsPoint(double x, double y, double margin) {
+        return Math.abs(x) <= mHalfWidth + margin && Math.abs(y) <= mHalfHeight + margin;
+    }
+
+    /**
+     * Liang-Barsky: finds the part of the segment {@code (x1, y1) + t * (dx, dy)}, {@code t} in [0, 1], within the given half extents
+     *
+     * @return whether any part is within. If so, its range is left in {@link #mClipT0}, {@link #mClipT1}
+     * */
+    private boolean clipRange(double x1, double y1, double dx, double dy, double hw, double hh) {
+        double t0 = 0, t1 = 1;
+        for (int edge=0; edge < 4; edge++) {
+            final double p, q;
+            switch (edge) {
+                case 0: p = -dx; q = x1 + hw; break;
+                case 1: p = dx; q = hw - x1; break;
+                case 2: p = -dy; q = y1 + hh; break;
+                default: p = dy; q = hh - y1; break;
+            }
+
+            if (p == 0) {
+                if (q < 0)
+                    return false;       // parallel to this edge, and outside
+                continue;
+            }
+
+            final double r = q / p;
+            if (p < 0) {
+                if (r > t1)
+                    return false;
+                if (r > t0) {
+                    t0 = r;
+                }
+            } else {
+                if (r < t0)
+                    return false;
+                if (r < t1) {
+                    t1 = r;
+                }
+            }
+        }
+
+        mClipT0 = t0;
+        mClipT1 = t1;
+        return true;
+    }
+
+    /**
+     * Clips a segment to the viewport (Liang-Barsky), writing the visible part into {@code dest} as {@code x1, y1, x2, y2}
+     *
+     * @param x1 x of the start, relative to the center. Other coordinates likewise
+     * @return whether any part of the segment is visible. If not, {@code dest} is left untouched
+     * */
+    public boolean clip(double x1, double y1, double x2, double y2, @NotNull float[] dest, int offset) {
+        final double dx = x2 - x1, dy = y2 - y1;
+        if (!clipRange(x1, y1, dx, dy, mHalfWidth, mHalfHeight))
+            return false;
+
+        final double t0 = mClipT0, t1 = mClipT1;
+        dest[offset] = (float) (x1 + t0 * dx);
+        dest[offset + 1] = (float) (y1 + t0 * dy);
+        dest[offset + 2] = (float) (x1 + t1 * dx);
+        dest[offset + 3] = (float) (y1 + t1 * dy);
+        return true;
+    }
+
+    /**
+     * @param x1 x of the start, relative to the center. Other coordinates likewise
+     * @return whether any part of the segment is within the viewport widened by a margin on each side. For conservative culling with
+     * approximate end points: a segment whose ends are off by at most {@code margin} is never visible if this is {@code false}
+     * */
+    public boolean intersectsSegment(double x1, double y1, double x2, double y2, double margin) {
+        return clipRange(x1, y1, x2 - x1, y2 - y1, mHalfWidth + margin, mHalfHeight + margin);
+    }
+
+    @Override
+    public String toString() {
+        return "Viewport{center=(" + mCenterX + ", " + mCenterY + "), half=(" + mHalfWidth + ", " + mHalfHeight + ")}";
+    }
+}
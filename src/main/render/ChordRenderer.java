@@ -0,0 +1,24 @@
+package main.render;
+
+import main.math.ChordBuffer;
+import org.jetbrains.annotations.NotNull;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+
+/**
+ * Draws the chords of a frame
+ */
+public interface ChordRenderer {
+
+    /**
+     * @param g graphics in panel coordinates. Its transform must be left unchanged
+     * @param geometry chords of the frame, centered at origin
+     * @param view transform from geometry to panel coordinates
+     * @param width width of the panel
+     * @param height height of the panel
+     * @param timesFactor times factor of the frame, used for colouring
+     * */
+    void render(@NotNull Graphics2D g, @NotNull ChordBuffer geometry, @NotNull AffineTransform view, int width, int height, float timesFactor);
+
+}
@@ -0,0 +1,241 @@
+package main.render;
+
+import main.math.ChordBuffer;
+import main.ui.GlConfig;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Additive (histogram) renderer. Instead of blending lines over each other, the coverage of every chord is accumulated into a
+ * per-pixel {@code float[]} density buffer, which is then tone mapped to colours of the {@link GlConfig} palette
+ *
+ * <p>
+ * Chords are split into stripes, one per worker, and each stripe is accumulated into its own buffer on a {@link ForkJoinPool},
+ * so no locking is needed. Stripe buffers are then reduced and tone mapped in parallel over rows.
+ * Since accumulation is order independent, the result does not depend on the number of stripes (up to float rounding)
+ * <p>
+ * Several renderers may exist at once (one per drawing thread), so stripe buffers beyond {@link #STRIPE_BUFFERS_BYTES_RETAINED}
+ * are released once a frame is resolved rather than kept for the next one
+ */
+public class DensityChordRenderer extends RasterChordRenderer {
+
+    public enum ToneMap {
+        /**
+         * {@code log(1 + d) / log(1 + max)}
+         * */
+        LOG,
+
+        /**
+         * {@code (d / max) ^ (1 / GAMMA)}
+         * */
+        GAMMA
+    }
+
+    public static final float GAMMA = 2.2f;
+
+    /**
+     * Memory budget of all stripe buffers while drawing a frame. Fewer stripes are used on large rasters
+     * */
+    private static final long STRIPE_BUFFERS_BYTES_MAX = 128L << 20;
+
+    /**
+     * Stripe buffers kept between frames, per renderer
+     * */
+    private static final long STRIPE_BUFFERS_BYTES_RETAINED = 16L << 20;
+
+    /**
+     * Chords per stripe below which chords are not split further
+     * */
+    private static final int CHORDS_PER_STRIPE_MIN = 256;
+
+    private static final int ROWS_PER_TASK = 16;
+
+    /**
+     * Number of intensity levels in the colour lookup table
+     * */
+    private static final int LUT_SIZE = 256;
+
+    @NotNull
+    private final ForkJoinPool mPool;
+    @NotNull
+    private final ToneMap mToneMap;
+
+    @NotNull
+    private float[][] mStripes = new float[0][];
+    @NotNull
+    private float[] mRowMax = new float[0];
+    @NotNull
+    private final int[] mLut = new int[LUT_SIZE];
+
+    public DensityChordRenderer(@NotNull ForkJoinPool pool, @NotNull ToneMap toneMap) {
+        mPool = pool;
+        mToneMap = toneMap;
+    }
+
+    public DensityChordRenderer(@NotNull ToneMap toneMap) {
+        this(ForkJoinPool.commonPool(), toneMap);
+    }
+
+    public DensityChordRenderer() {
+        this(ToneMap.LOG);
+    }
+
+    @NotNull
+    public ToneMap getToneMap() {
+        return mToneMap;
+    }
+
+    @Override
+    protected boolean usesChordColors() {
+        return false;
+    }
+
+    private int stripeCount(int size, int chordCount) {
+        final long byBudget = STRIPE_BUFFERS_BYTES_MAX / ((long) size * Float.BYTES);
+        final int byChords = (chordCount + CHORDS_PER_STRIPE_MIN - 1) / CHORDS_PER_STRIPE_MIN;
+        return (int) Math.max(1, Math.min(Math.min(mPool.getParallelism(), byBudget), byChords));
+    }
+
+    private void ensureStripes(int stripes, int size) {
+        if (mStripes.length < stripes) {
+            mStripes = Arrays.copyOf(mStripes, stripes);
+        }
+
+        for (int s=0; s < stripes; s++) {
+            if (mStripes[s] == null || mStripes[s].length < size) {
+                mStripes[s] = new float[size];
+            }
+        }
+    }
+
+    /**
+     * Drops the stripe buffers that do not fit in {@link #STRIPE_BUFFERS_BYTES_RETAINED}, first ones kept
+     * */
+    private void releaseStripes() {
+        final float[][] buffers = mStripes;
+        long retained = 0;
+        for (int s=0; s < buffers.length; s++) {
+            if (buffers[s] == null)
+                continue;
+
+            retained += (long) buffers[s].length * Float.BYTES;
+            if (retained > STRIPE_BUFFERS_BYTES_RETAINED) {
+                buffers[s] = null;
+            }
+        }
+    }
+
+    private void accumulate(@NotNull float[] buffer, int width, int height, int chordFrom, int chordTo) {
+        Arrays.fill(buffer, 0, width * height, 0);
+
+        final float[] chords = mDeviceChords;
+        for (int c = chordFrom; c < chordTo; c++) {
+            final int o = c * ChordBuffer.CHORD_STRIDE;
+            WuRasterizer.accumulateLine(buffer, width, 0, 0, width, height, chords[o], chords[o + 1], chords[o + 2], chords[o + 3], 1);
+        }
+    }
+
+    /**
+     * Sums stripes into the first one over rows [rowFrom, rowTo), recording the maximum density of each row
+     * */
+    private void reduce(int stripes, int width, int rowFrom, int rowTo) {
+        final float[][] buffers = mStripes;
+        final float[] dest = buffers[0];
+
+        for (int y = rowFrom; y < rowTo; y++) {
+            final int start = y * width, end = start + width;
+            for (int s=1; s < stripes; s++) {
+                final float[] src = buffers[s];
+                for (int i = start; i < end; i++) {
+                    dest[i] += src[i];
+                }
+            }
+
+            float max = 0;
+            for (int i = start; i < end; i++) {
+                max = Math.max(max, dest[i]);
+            }
+
+            mRowMax[y] = max;
+        }
+    }
+
+    private void buildLut(float timesFactor) {
+        final int[] lut = mLut;
+        for (int k=0; k < LUT_SIZE; k++) {
+            final int rgb = GlConfig.densityColorArgb(k / (float) (LUT_SIZE - 1), timesFactor);
+            final int a = k * 255 / (LUT_SIZE - 1);
+
+            // premultiplied
+            final int r = (((rgb >> 16) & 0xFF) * a + 127) / 255;
+            final int g = (((rgb >> 8) & 0xFF) * a + 127) / 255;
+            final int b = ((rgb & 0xFF) * a + 127) / 255;
+            lut[k] = (a << 24) | (r << 16) | (g << 8) | b;
+        }
+    }
+
+    private void toneMap(@NotNull int[] pixels, int width, int rowFrom, int rowTo, float maxDensity) {
+        final float[] density = mStripes[0];
+        final int[] lut = mLut;
+        final boolean log = mToneMap == ToneMap.LOG;
+        final double norm = log? 1 / Math.log1p(maxDensity): 1 / (double) maxDensity;
+        final double exponent = 1 / (double) GAMMA;
+
+        for (int i = rowFrom * width, end = rowTo * width; i < end; i++) {
+            final float d = density[i];
+            if (d <= 0) {
+                pixels[i] = 0;
+                continue;
+            }
+
+            final double t = log? Math.log1p(d) * norm: Math.pow(d * norm, exponent);
+            pixels[i] = lut[Math.min(LUT_SIZE - 1, (int) (t * (LUT_SIZE - 1) + 0.5))];
+        }
+    }
+
+    @Override
+    protected void rasterize(@NotNull int[] pixels, int width, int height, int chordCount) {
+        try {
+            rasterizeStripes(pixels, width, height, chordCount);
+        } finally {
+            releaseStripes();
+        }
+    }
+
+    private void rasterizeStripes(@NotNull int[] pixels, int width, int height, int chordCount) {
+        final int size = width * height;
+        final int stripes = stripeCount(size, chordCount);
+        ensureStripes(stripes, size);
+        if (mRowMax.length < height) {
+            mRowMax = new float[height];
+        }
+
+        // 1. accumulate each stripe of chords into its own buffer
+        final float[][] buffers = mStripes;
+        RangeTask.invoke(mPool, 0, stripes, 1, (from, to) -> {
+            for (int s = from; s < to; s++) {
+                accumulate(buffers[s], width, height, (int) ((long) chordCount * s / stripes), (int) ((long) chordCount * (s + 1) / stripes));
+            }
+        });
+
+        // 2. reduce
+        RangeTask.invoke(mPool, 0, height, ROWS_PER_TASK, (from, to) -> reduce(stripes, width, from, to));
+
+        float maxDensity = 0;
+        for (int y=0; y < height; y++) {
+            maxDensity = Math.max(maxDensity, mRowMax[y]);
+        }
+
+        if (maxDensity <= 0) {
+            Arrays.fill(pixels, 0, size, 0);
+            return;
+        }
+
+        // 3. tone map
+        buildLut(mTimesFactor);
+        final float max = maxDensity;
+        RangeTask.invoke(mPool, 0, height, ROWS_PER_TASK, (from, to) -> toneMap(pixels, width, from, to, max));
+    }
+}
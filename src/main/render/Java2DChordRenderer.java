@@ -0,0 +1,38 @@
+package main.render;
+
+import main.math.ChordBuffer;
+import main.ui.GlConfig;
+import org.jetbrains.annotations.NotNull;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Line2D;
+
+/**
+ * Strokes each chord separately, in its own colour
+ */
+public class Java2DChordRenderer implements ChordRenderer {
+
+    @NotNull
+    private final Line2D.Float mLine = new Line2D.Float();
+
+    @Override
+    public void render(@NotNull Graphics2D g, @NotNull ChordBuffer geometry, @NotNull AffineTransform view, int width, int height, float timesFactor) {
+        final AffineTransform base = g.getTransform();
+        g.transform(view);
+
+        final GlConfig.LinePalette palette = GlConfig.linePalette(geometry.pointsCount(), timesFactor);
+        final float[] chords = geometry.chords();
+        final int[] indices = geometry.chordIndices();
+        final int chordCount = geometry.chordCount();
+
+        for (int c=0; c < chordCount; c++) {
+            final int o = c * ChordBuffer.CHORD_STRIDE;
+            g.setColor(palette.color(indices[c]));
+            mLine.setLine(chords[o], chords[o + 1], chords[o + 2], chords[o + 3]);
+            g.draw(mLine);
+        }
+
+        g.setTransform(base);
+    }
+}
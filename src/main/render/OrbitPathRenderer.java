@@ -0,0 +1,124 @@
+package main.render;
+
+import main.math.ChordBuffer;
+import main.math.OrbitDecomposition;
+import main.math.RMath;
+import main.ui.GlConfig;
+import org.jetbrains.annotations.NotNull;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Path2D;
+import java.util.Arrays;
+
+/**
+ * For integral times factors, draws the table as the walks of its {@link OrbitDecomposition}: connected polylines instead of separate
+ * segments, which the antialiasing rasterizer strokes much faster. Walks are split where the colour bucket of a chord changes
+ * (see {@link GlConfig#lineColorBucketCount(int)})
+ * <p>
+ * The decomposition and the paths are cached by (points count, factor, radius, buckets), so frames held on an integer only stroke.
+ * Fractional factors, level-of-detail decimated and viewport-culled frames are drawn by a {@link Java2DChordRenderer}
+ * <p>
+ * Paths are stroked with bevel joins, since the default miter joins would spike at the sharp turns between consecutive chords.
+ * Square caps keep the ends of split walks covered like separate segments would be
+ */
+public class OrbitPathRenderer implements ChordRenderer {
+
+    @NotNull
+    private static final BasicStroke PATH_STROKE = new BasicStroke(1f, BasicStroke.CAP_SQUARE, BasicStroke.JOIN_BEVEL);
+
+    @NotNull
+    private final OrbitDecomposition mDecomposition = new OrbitDecomposition();
+    @NotNull
+    private final Java2DChordRenderer mFallback = new Java2DChordRenderer();
+
+    @NotNull
+    private Path2D.Float[] mPaths = new Path2D.Float[0];
+    @NotNull
+    private int[] mPenPoints = new int[0];
+    private int mBuckets;
+    private float mRadius = Float.NaN;
+    private boolean mPathsValid;
+
+    @NotNull
+    public OrbitDecomposition getDecomposition() {
+        return mDecomposition;
+    }
+
+    private void ensureBuckets(int buckets) {
+        if (mPaths.length < buckets) {
+            final Path2D.Float[] paths = new Path2D.Float[buckets];
+            System.arraycopy(mPaths, 0, paths, 0, mPaths.length);
+            for (int i = mPaths.length; i < buckets; i++) {
+                paths[i] = new Path2D.Float(Path2D.WIND_NON_ZERO);
+            }
+
+            mPaths = paths;
+            mPenPoints = new int[buckets];
+        }
+    }
+
+    private void buildPaths(@NotNull ChordBuffer geometry, int buckets) {
+        ensureBuckets(buckets);
+
+        final Path2D.Float[] paths = mPaths;
+        final int[] pen = mPenPoints;        // last point each path was drawn to, so walks continue without a moveTo
+        for (int b=0; b < buckets; b++) {
+            paths[b].reset();
+        }
+        Arrays.fill(pen, 0, buckets, -1);
+
+        final OrbitDecomposition decomposition = mDecomposition;
+        final int pointsCount = decomposition.pointsCount();
+        final int[] walks = decomposition.walks(), starts = decomposition.walkStarts();
+        final float[] px = geometry.pointsX(), py = geometry.pointsY();
+
+        for (int w=0, count = decomposition.walkCount(); w < count; w++) {
+            for (int t = starts[w], end = starts[w + 1] - 1; t < end; t++) {
+                final int from = walks[t], to = walks[t + 1];
+                final int b = GlConfig.lineColorBucket(from, pointsCount, buckets);
+                final Path2D.Float path = paths[b];
+                if (pen[b] != from) {
+                    path.moveTo(px[from], py[from]);
+                }
+
+                path.lineTo(px[to], py[to]);
+                pen[b] = to;
+            }
+        }
+
+        mBuckets = buckets;
+        mRadius = geometry.pointRing().radius();
+        mPathsValid = true;
+    }
+
+    @Override
+    public void render(@NotNull Graphics2D g, @NotNull ChordBuffer geometry, @NotNull AffineTransform view, int width, int height, float timesFactor) {
+        final int pointsCount = geometry.pointsCount();
+        if (timesFactor < 0 || !RMath.isInt(timesFactor) || geometry.stride() != 1 || geometry.culled() || pointsCount <= 0) {
+            mFallback.render(g, geometry, view, width, height, timesFactor);
+            return;
+        }
+
+        final int buckets = GlConfig.lineColorBucketCount(pointsCount);
+        if (mDecomposition.compute(pointsCount, (long) timesFactor) || !mPathsValid || mBuckets != buckets || mRadius != geometry.pointRing().radius()) {
+            buildPaths(geometry, buckets);
+        }
+
+        final AffineTransform base = g.getTransform();
+        final Stroke stroke = g.getStroke();
+        g.transform(view);
+        g.setStroke(PATH_STROKE);
+
+        final Path2D.Float[] paths = mPaths;
+        for (int b=0; b < buckets; b++) {
+            if (paths[b].getCurrentPoint() != null) {
+                g.setColor(GlConfig.lineColorOfBucket(b, buckets, timesFactor));
+                g.draw(paths[b]);
+            }
+        }
+
+        g.setStroke(stroke);
+        g.setTransform(base);
+    }
+}
@@ -0,0 +1,47 @@
+package main.render;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs a body over an index range on a {@link ForkJoinPool}, splitting the range in halves until it is no larger than the grain
+ */
+class RangeTask extends RecursiveAction {
+
+    interface Body {
+        /**
+         * Processes indices [from, to)
+         * */
+        void run(int from, int to);
+    }
+
+    @NotNull
+    private final Body body;
+    private final int from, to, grain;
+
+    private RangeTask(@NotNull Body body, int from, int to, int grain) {
+        this.body = body;
+        this.from = from;
+        this.to = to;
+        this.grain = grain;
+    }
+
+    @Override
+    protected void compute() {
+        if (to - from <= grain) {
+            body.run(from, to);
+        } else {
+            final int mid = (from + to) >>> 1;
+            invokeAll(new RangeTask(body, from, mid, grain), new RangeTask(body, mid, to, grain));
+        }
+    }
+
+    static void invoke(@NotNull ForkJoinPool pool, int from, int to, int grain, @NotNull Body body) {
+        if (from >= to)
+            return;
+
+        pool.invoke(new RangeTask(body, from, to, Math.max(1, grain)));
+    }
+}
@@ -0,0 +1,115 @@
+package main.render;
+
+import main.math.ChordBuffer;
+import main.ui.GlConfig;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+/**
+ * Software renderer, rasterizing chords with {@link WuRasterizer} straight into the {@code int[]} raster of an offscreen
+ * {@link BufferedImage#TYPE_INT_ARGB_PRE} image, which is then blit in one call. Bypasses the Java2D shape pipeline entirely
+ * <p>
+ * Chords are first transformed to device space along with their packed colours ({@link #prepare}), and then rasterized ({@link #rasterize})
+ */
+public class RasterChordRenderer implements ChordRenderer {
+
+    @Nullable
+    private BufferedImage mImage;
+    @NotNull
+    private int[] mPixels = new int[0];
+
+    /* Device space chords (x1, y1, x2, y2) and their colours */
+    @NotNull
+    protected float[] mDeviceChords = new float[0];
+    @NotNull
+    protected int[] mChordColors = new int[0];
+    protected float mTimesFactor;
+
+    @NotNull
+    private BufferedImage ensureImage(int width, int height) {
+        BufferedImage image = mImage;
+        if (image == null || image.getWidth() != width || image.getHeight() != height) {
+            image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+            mImage = image;
+            mPixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        }
+
+        return image;
+    }
+
+    /**
+     * Transforms chords to device space and resolves their colours
+     * */
+    protected void prepare(@NotNull ChordBuffer geometry, @NotNull AffineTransform view, float timesFactor) {
+        mTimesFactor = timesFactor;
+        final int chordCount = geometry.chordCount();
+        if (mChordColors.length < chordCount) {
+            mDeviceChords = new float[chordCount * ChordBuffer.CHORD_STRIDE];
+            mChordColors = new int[chordCount];
+        }
+
+        final float m00 = (float) view.getScaleX(), m01 = (float) view.getShearX(), m02 = (float) view.getTranslateX();
+        final float m10 = (float) view.getShearY(), m11 = (float) view.getScaleY(), m12 = (float) view.getTranslateY();
+
+        final float[] src = geometry.chords(), dest = mDeviceChords;
+        for (int o=0, end = chordCount * ChordBuffer.CHORD_STRIDE; o < end; o += 2) {
+            final float x = src[o], y = src[o + 1];
+            dest[o] = m00 * x + m01 * y + m02;
+            dest[o + 1] = m10 * x + m11 * y + m12;
+        }
+
+        if (!usesChordColors())
+            return;
+
+        final GlConfig.LinePalette palette = GlConfig.linePalette(geometry.pointsCount(), timesFactor);
+        final int[] indices = geometry.chordIndices(), colors = mChordColors;
+        if (palette.size > 1) {
+            for (int c=0; c < chordCount; c++) {
+                colors[c] = palette.argb(indices[c]);
+            }
+        } else {
+            Arrays.fill(colors, 0, chordCount, palette.argb(0));
+        }
+    }
+
+    /**
+     * @return whether {@link #rasterize} reads {@link #mChordColors}. If not, chord colours are not resolved in {@link #prepare}
+     * */
+    protected boolean usesChordColors() {
+        return true;
+    }
+
+    /**
+     * Clears the raster and rasterizes prepared chords into it
+     * */
+    protected void rasterize(@NotNull int[] pixels, int width, int height, int chordCount) {
+        Arrays.fill(pixels, 0, width * height, 0);
+
+        final float[] chords = mDeviceChords;
+        final int[] colors = mChordColors;
+
+        for (int c=0; c < chordCount; c++) {
+            final int o = c * ChordBuffer.CHORD_STRIDE;
+            WuRasterizer.drawLine(pixels, width, 0, 0, width, height, chords[o], chords[o + 1], chords[o + 2], chords[o + 3], colors[c]);
+        }
+    }
+
+    @Override
+    public void render(@NotNull Graphics2D g, @NotNull ChordBuffer geometry, @NotNull AffineTransform view, int width, int height, float timesFactor) {
+        if (width <= 0 || height <= 0)
+            return;
+
+        final BufferedImage image = ensureImage(width, height);
+        prepare(geometry, view, timesFactor);
+        rasterize(mPixels, width, height, geometry.chordCount());
+
+        g.drawImage(image, 0, 0, null);
+    }
+
+}
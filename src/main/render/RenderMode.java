@@ -0,0 +1,77 @@
+package main.render;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.Unmodifiable;
+
+public enum RenderMode {
+
+    /**
+     * Each line is stroked separately through Java2D
+     * */
+    JAVA2D("Java2D"),
+
+    /**
+     * For integral times factors, the chords are decomposed into orbits of {@code i -> k * i mod n}, and each orbit is stroked as one
+     * connected polyline through Java2D. Other frames are drawn like {@link #JAVA2D}
+     * */
+    ORBIT_PATHS("Orbit Paths"),
+
+    /**
+     * Lines are rasterized in software straight into an offscreen image, which is then blit
+     * */
+    RASTER("Raster"),
+
+    /**
+     * Like {@link #RASTER}, but the raster is split into tiles which are rasterized in parallel on all cores
+     * */
+    RASTER_PARALLEL("Raster Parallel"),
+
+    /**
+     * Coverage of lines is accumulated in parallel into a density buffer, which is then tone mapped to an image with {@link DensityChordRenderer.ToneMap#LOG}
+     * */
+    DENSITY("Density"),
+
+    /**
+     * Like {@link #DENSITY}, but tone mapped with {@link DensityChordRenderer.ToneMap#GAMMA}, which keeps more contrast in dense regions
+     * */
+    DENSITY_GAMMA("Density Gamma");
+
+
+    @NotNull
+    public final String displayName;
+
+    RenderMode(@NotNull String displayName) {
+        this.displayName = displayName;
+    }
+
+    @NotNull
+    public ChordRenderer createRenderer() {
+        return switch (this) {
+            case JAVA2D -> new Java2DChordRenderer();
+            case ORBIT_PATHS -> new OrbitPathRenderer();
+            case RASTER -> new RasterChordRenderer();
+            case RASTER_PARALLEL -> new TiledRasterChordRenderer();
+            case DENSITY -> new DensityChordRenderer(DensityChordRenderer.ToneMap.LOG);
+            case DENSITY_GAMMA -> new DensityChordRenderer(DensityChordRenderer.ToneMap.GAMMA);
+        };
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+
+
+    @Nullable
+    @Unmodifiable
+    private static RenderMode[] sValues;
+
+    public static RenderMode[] sharedValues() {
+        if (sValues == null) {
+            sValues = values();
+        }
+
+        return sValues;
+    }
+}
@@ -0,0 +1,168 @@
+package main.render;
+
+import main.math.ChordBuffer;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Multi-core variant of {@link RasterChordRenderer}
+ *
+ * <p>
+ * The raster is split into square tiles. Prepared chords are binned into the tiles they cross, preserving chord order within
+ * each bin, and tiles are then cleared and rasterized in parallel on a {@link ForkJoinPool}. Each worker only writes to its own
+ * tiles, so no locking is needed.
+ * <p>
+ * Since {@link WuRasterizer} output does not depend on the clip rectangle, and each pixel sees the same chords in the same order,
+ * the output is pixel-identical to the single-threaded renderer
+ */
+public class TiledRasterChordRenderer extends RasterChordRenderer {
+
+    public static final int TILE_SIZE = 64;
+
+    /**
+     * Tiles per task below which a task is not split further
+     * */
+    private static final int TILES_PER_TASK = 2;
+
+    /**
+     * Pixels a chord may reach beyond its end points (Wu end point and neighbour plots)
+     * */
+    private static final int BIN_MARGIN = 2;
+
+    @NotNull
+    private final ForkJoinPool mPool;
+
+    /* Bins, laid out flat: chords of tile t are mBinChords[mBinStarts[t] ... mBinStarts[t + 1]) */
+    @NotNull
+    private int[] mBinStarts = new int[0];
+    @NotNull
+    private int[] mBinFill = new int[0];
+    @NotNull
+    private int[] mBinChords = new int[0];
+
+    private int mTilesX, mTilesY;
+
+    public TiledRasterChordRenderer(@NotNull ForkJoinPool pool) {
+        mPool = pool;
+    }
+
+    public TiledRasterChordRenderer() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Counts (first pass) or records (second pass) the chord in every tile it may touch
+     * */
+    private void binChord(int chord, int width, int height, boolean fill) {
+        final int o = chord * ChordBuffer.CHORD_STRIDE;
+        float x0 = mDeviceChords[o], y0 = mDeviceChords[o + 1], x1 = mDeviceChords[o + 2], y1 = mDeviceChords[o + 3];
+        if (!(Float.isFinite(x0) && Float.isFinite(y0) && Float.isFinite(x1) && Float.isFinite(y1)))
+            return;
+
+        final boolean steep = Math.abs(y1 - y0) > Math.abs(x1 - x0);
+        float t;
+        if (steep) {
+            t = x0; x0 = y0; y0 = t;
+            t = x1; x1 = y1; y1 = t;
+        }
+
+        if (x0 > x1) {
+            t = x0; x0 = x1; x1 = t;
+            t = y0; y0 = y1; y1 = t;
+        }
+
+        final int majorSize = steep? height: width, minorSize = steep? width: height;
+        final int majorTiles = steep? mTilesY: mTilesX, minorTiles = steep? mTilesX: mTilesY;
+
+        final double majorLo = Math.max(0, Math.floor(x0) - BIN_MARGIN), majorHi = Math.min(majorSize - 1, Math.ceil(x1) + BIN_MARGIN);
+        if (majorLo > majorHi)
+            return;
+
+        final double gradient = x1 == x0? 0: (y1 - y0) / (double) (x1 - x0);
+        final int tileFrom = (int) majorLo / TILE_SIZE, tileTo = Math.min(majorTiles - 1, (int) majorHi / TILE_SIZE);
+
+        for (int mt = tileFrom; mt <= tileTo; mt++) {
+            // minor range of the line over this tile's major span
+            final double a = Math.max(x0, mt * TILE_SIZE - BIN_MARGIN), b = Math.min(x1, (mt + 1) * TILE_SIZE + BIN_MARGIN);
+            final double ya = y0 + gradient * (a - x0), yb = y0 + gradient * (b - x0);
+            final double minorLo = Math.max(0, Math.floor(Math.min(ya, yb)) - BIN_MARGIN);
+            final double minorHi = Math.min(minorSize - 1, Math.ceil(Math.max(ya, yb)) + BIN_MARGIN);
+            if (minorLo > minorHi)
+                continue;
+
+            final int minorFrom = (int) minorLo / TILE_SIZE, minorTo = Math.min(minorTiles - 1, (int) minorHi / TILE_SIZE);
+            for (int nt = minorFrom; nt <= minorTo; nt++) {
+                final int tile = steep? mt * mTilesX + nt: nt * mTilesX + mt;
+                if (fill) {
+                    mBinChords[mBinFill[tile]++] = chord;
+                } else {
+                    mBinStarts[tile + 1]++;
+                }
+            }
+        }
+    }
+
+    private void bin(int width, int height, int chordCount) {
+        final int tilesX = (width + TILE_SIZE - 1) / TILE_SIZE, tilesY = (height + TILE_SIZE - 1) / TILE_SIZE;
+        final int tiles = tilesX * tilesY;
+        mTilesX = tilesX;
+        mTilesY = tilesY;
+
+        if (mBinStarts.length < tiles + 1) {
+            mBinStarts = new int[tiles + 1];
+            mBinFill = new int[tiles];
+        }
+
+        final int[] starts = mBinStarts;
+        Arrays.fill(starts, 0, tiles + 1, 0);
+
+        // 1. count
+        for (int c=0; c < chordCount; c++) {
+            binChord(c, width, height, false);
+        }
+
+        // 2. prefix sum
+        for (int i=0; i < tiles; i++) {
+            starts[i + 1] += starts[i];
+        }
+
+        if (mBinChords.length < starts[tiles]) {
+            mBinChords = new int[starts[tiles]];
+        }
+
+        // 3. fill, in chord order
+        System.arraycopy(starts, 0, mBinFill, 0, tiles);
+        for (int c=0; c < chordCount; c++) {
+            binChord(c, width, height, true);
+        }
+    }
+
+    private void rasterizeTile(@NotNull int[] pixels, int width, int height, int tile) {
+        final int x0 = (tile % mTilesX) * TILE_SIZE, y0 = (tile / mTilesX) * TILE_SIZE;
+        final int x1 = Math.min(width, x0 + TILE_SIZE), y1 = Math.min(height, y0 + TILE_SIZE);
+
+        for (int y = y0; y < y1; y++) {
+            Arrays.fill(pixels, y * width + x0, y * width + x1, 0);
+        }
+
+        final float[] chords = mDeviceChords;
+        final int[] colors = mChordColors, bin = mBinChords;
+        for (int i = mBinStarts[tile], end = mBinStarts[tile + 1]; i < end; i++) {
+            final int c = bin[i];
+            final int o = c * ChordBuffer.CHORD_STRIDE;
+            WuRasterizer.drawLine(pixels, width, x0, y0, x1, y1, chords[o], chords[o + 1], chords[o + 2], chords[o + 3], colors[c]);
+        }
+    }
+
+    @Override
+    protected void rasterize(@NotNull int[] pixels, int width, int height, int chordCount) {
+        bin(width, height, chordCount);
+        RangeTask.invoke(mPool, 0, mTilesX * mTilesY, TILES_PER_TASK, (from, to) -> {
+            for (int t = from; t < to; t++) {
+                rasterizeTile(pixels, width, height, t);
+            }
+        });
+    }
+}
@@ -0,0 +1,179 @@
+package main.render;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Antialiased line rasterization (Xiaolin Wu's algorithm) into a packed {@code int[]} raster of premultiplied ARGB pixels
+ *
+ * <p>
+ * Lines are clipped to a rectangle. Each pixel's coverage is computed from its own coordinate rather than accumulated
+ * along the line, so rasterizing a line into any set of clip rectangles yields exactly the same pixels as rasterizing it once
+ * <p>
+ * Lines can also be accumulated additively into a {@code float[]} density buffer ({@link #accumulateLine})
+ */
+public class WuRasterizer {
+
+    private WuRasterizer() {
+    }
+
+    private static int div255(int v) {
+        return (v + 1 + (v >> 8)) >> 8;
+    }
+
+    /**
+     * Blends an opaque or translucent (non-premultiplied) colour over the pixel at given index with src-over rule
+     *
+     * @param coverage fraction of the pixel covered, in range [0, 1]
+     * */
+    public static void blend(@NotNull int[] pixels, int index, int argb, float coverage) {
+        final int a = (int) (coverage * (argb >>> 24) + 0.5f);
+        if (a <= 0)
+            return;
+
+        final int inv = 255 - a;
+        final int dst = pixels[index];
+
+        final int oa = a + div255((dst >>> 24) * inv);
+        final int or = div255(((argb >> 16) & 0xFF) * a + ((dst >> 16) & 0xFF) * inv);
+        final int og = div255(((argb >> 8) & 0xFF) * a + ((dst >> 8) & 0xFF) * inv);
+        final int ob = div255((argb & 0xFF) * a + (dst & 0xFF) * inv);
+
+        pixels[index] = (oa << 24) | (or << 16) | (og << 8) | ob;
+    }
+
+    /**
+     * Plots into the ARGB raster if given, else adds {@code coverage * weight} to the density buffer
+     * */
+    private static void plot(@Nullable int[] pixels, @Nullable float[] density, int index, int argb, float weight, float coverage) {
+        if (pixels != null) {
+            blend(pixels, index, argb, coverage);
+        } else {
+            density[index] += coverage * weight;
+        }
+    }
+
+    private static void plot(@Nullable int[] pixels, @Nullable float[] density, int stride, int clipX0, int clipY0, int clipX1, int clipY1,
+                             boolean steep, int major, int minor, int argb, float weight, float coverage) {
+        final int x = steep? minor: major, y = steep? major: minor;
+        if (x < clipX0 || x >= clipX1 || y < clipY0 || y >= clipY1)
+            return;
+
+        plot(pixels, density, y * stride + x, argb, weight, coverage);
+    }
+
+    private static float fpart(float v) {
+        return v - (float) Math.floor(v);
+    }
+
+    private static float rfpart(float v) {
+        return 1 - fpart(v);
+    }
+
+    /**
+     * Draws an antialiased line, clipped to the rectangle [clipX0, clipX1) x [clipY0, clipY1)
+     *
+     * @param pixels premultiplied ARGB raster
+     * @param stride pixels per raster row
+     * @param argb non-premultiplied colour of the line
+     * */
+    public static void drawLine(@NotNull int[] pixels, int stride,
+                                int clipX0, int clipY0, int clipX1, int clipY1,
+                                float x0, float y0, float x1, float y1, int argb) {
+        line(pixels, null, stride, clipX0, clipY0, clipX1, clipY1, x0, y0, x1, y1, argb, 0);
+    }
+
+    /**
+     * Accumulates the coverage of an antialiased line into a density buffer, clipped to the rectangle [clipX0, clipX1) x [clipY0, clipY1).
+     * Coverage is the same as of {@link #drawLine}, but is added instead of blended, so the result does not depend on the order of lines
+     *
+     * @param density per-pixel density buffer
+     * @param stride pixels per buffer row
+     * @param weight density added by a fully covered pixel
+     * */
+    public static void accumulateLine(@NotNull float[] density, int stride,
+                                      int clipX0, int clipY0, int clipX1, int clipY1,
+                                      float x0, float y0, float x1, float y1, float weight) {
+        line(null, density, stride, clipX0, clipY0, clipX1, clipY1, x0, y0, x1, y1, 0, weight);
+    }
+
+    private static void line(@Nullable int[] pixels, @Nullable float[] density, int stride,
+                             int clipX0, int clipY0, int clipX1, int clipY1,
+                             float x0, float y0, float x1, float y1, int argb, float weight) {
+        if (!(Float.isFinite(x0) && Float.isFinite(y0) && Float.isFinite(x1) && Float.isFinite(y1)))
+            return;
+
+        final boolean steep = Math.abs(y1 - y0) > Math.abs(x1 - x0);
+        float t;
+        if (steep) {
+            t = x0; x0 = y0; y0 = t;
+            t = x1; x1 = y1; y1 = t;
+        }
+
+        if (x0 > x1) {
+            t = x0; x0 = x1; x1 = t;
+            t = y0; y0 = y1; y1 = t;
+        }
+
+        // major axis clip range
+        final int majorMin = steep? clipY0: clipX0, majorMax = steep? clipY1: clipX1;
+        if (x1 + 1 < majorMin || x0 - 1 >= majorMax)
+            return;
+
+        final float dx = x1 - x0, dy = y1 - y0;
+        final float gradient = dx == 0? 1: dy / dx;
+
+        // first end point
+        final float xEnd1 = (float) Math.floor(x0 + 0.5f);
+        final float yEnd1 = y0 + gradient * (xEnd1 - x0);
+        final float xGap1 = rfpart(x0 + 0.5f);
+        final int xPixel1 = (int) xEnd1, yPixel1 = (int) Math.floor(yEnd1);
+        plot(pixels, density, stride, clipX0, clipY0, clipX1, clipY1, steep, xPixel1, yPixel1, argb, weight, rfpart(yEnd1) * xGap1);
+        plot(pixels, density, stride, clipX0, clipY0, clipX1, clipY1, steep, xPixel1, yPixel1 + 1, argb, weight, fpart(yEnd1) * xGap1);
+
+        // second end point
+        final float xEnd2 = (float) Math.floor(x1 + 0.5f);
+        final float yEnd2 = y1 + gradient * (xEnd2 - x1);
+        final float xGap2 = fpart(x1 + 0.5f);
+        final int xPixel2 = (int) xEnd2, yPixel2 = (int) Math.floor(yEnd2);
+        if (xPixel2 != xPixel1) {
+            plot(pixels, density, stride, clipX0, clipY0, clipX1, clipY1, steep, xPixel2, yPixel2, argb, weight, rfpart(yEnd2) * xGap2);
+            plot(pixels, density, stride, clipX0, clipY0, clipX1, clipY1, steep, xPixel2, yPixel2 + 1, argb, weight, fpart(yEnd2) * xGap2);
+        }
+
+        // span, clipped along major axis
+        int from = Math.max(xPixel1 + 1, majorMin), to = Math.min(xPixel2 - 1, majorMax - 1);
+        final int minorMin = steep? clipX0: clipY0, minorMax = steep? clipX1: clipY1;
+
+        // narrow the span to where the line crosses the minor clip range (conservatively, by a pixel on each side)
+        if (gradient == 0) {
+            if (yEnd1 < minorMin - 1 || yEnd1 >= minorMax)
+                return;
+        } else {
+            final double xa = xEnd1 + (minorMin - 1 - yEnd1) / (double) gradient;
+            final double xb = xEnd1 + (minorMax - yEnd1) / (double) gradient;
+            from = (int) Math.max(from, Math.floor(Math.min(xa, xb)) - 1);
+            to = (int) Math.min(to, Math.ceil(Math.max(xa, xb)) + 1);
+        }
+
+        final int majorStep = steep? stride: 1, minorStep = steep? 1: stride;
+
+        for (int x = from; x <= to; x++) {
+            final float interY = yEnd1 + gradient * (x - xEnd1);
+            int y = (int) interY;
+            if (interY < y) {
+                y--;        // floor
+            }
+
+            final float f = interY - y;
+            final int index = x * majorStep + y * minorStep;
+            if (y >= minorMin && y < minorMax) {
+                plot(pixels, density, index, argb, weight, 1 - f);
+            }
+
+            if (y + 1 >= minorMin && y + 1 < minorMax) {
+                plot(pixels, density, index + minorStep, argb, weight, f);
+            }
+        }
+    }
+}
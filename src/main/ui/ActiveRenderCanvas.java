@@ -0,0 +1,210 @@
+package main.ui;
+
+import main.util.Log;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.awt.*;
+import java.awt.image.BufferStrategy;
+import java.util.function.Consumer;
+
+/**
+ * Heavyweight surface for active rendering. Frames are drawn straight into the back buffer of a {@link BufferStrategy}
+ * and presented with {@link BufferStrategy#show()} by the caller's thread, bypassing the Swing {@code RepaintManager}
+ *
+ * <p>
+ * When page flipping is preferred (full-screen exclusive mode), a flipping strategy is requested first, falling back to blitting
+ * if the device does not support it. Time taken to present each frame is measured
+ * <p>
+ * Frames may be presented from any thread, one at a time. The strategy is only created on the UI thread ({@link #renderFrame(Consumer)}),
+ * other threads present with {@link #presentFrame(Consumer)} once it exists
+ */
+public class ActiveRenderCanvas extends Canvas {
+
+    public static final String TAG = "ActiveRenderCanvas";
+
+    public static final int BUFFERS_COUNT = 2;
+
+    /**
+     * Weight of the latest sample in the present latency moving average
+     * */
+    private static final double LATENCY_SMOOTHING = 0.1;
+
+    @NotNull
+    private final Runnable mOnExpose;
+
+    /* Guards the strategy. Never held while waiting for the AWT tree lock, except on the UI thread */
+    @NotNull
+    private final Object mStrategyLock = new Object();
+    @Nullable
+    private BufferStrategy mStrategy;
+    private volatile boolean mPageFlippingPreferred;
+    private volatile boolean mPageFlipping;
+
+    private volatile long mLastPresentNanos;
+    private volatile double mAvgPresentNanos = -1;
+    private volatile long mFramesPresented;
+
+    /**
+     * @param onExpose called when the system asks for a repaint (first show, resize, uncover), to render a frame actively
+     * */
+    public ActiveRenderCanvas(@NotNull Runnable onExpose) {
+        mOnExpose = onExpose;
+        setFocusable(false);
+    }
+
+    @Override
+    public void paint(Graphics g) {
+        mOnExpose.run();
+    }
+
+    @Override
+    public void update(Graphics g) {
+        paint(g);       // no clear, the frame covers everything
+    }
+
+    @Override
+    public void removeNotify() {
+        disposeStrategy();
+        super.removeNotify();
+    }
+
+    private void disposeStrategy() {
+        synchronized (mStrategyLock) {
+            if (mStrategy != null) {
+                mStrategy.dispose();
+                mStrategy = null;
+            }
+
+            mPageFlipping = false;
+        }
+    }
+
+    @Nullable
+    private BufferStrategy ensureStrategy() {
+        if (mStrategy != null)
+            return mStrategy;
+
+        if (!isDisplayable() || getWidth() <= 0 || getHeight() <= 0)
+            return null;
+
+        boolean created = false;
+        if (mPageFlippingPreferred) {
+            try {
+                createBufferStrategy(BUFFERS_COUNT, new BufferCapabilities(new ImageCapabilities(true), new ImageCapabilities(true), BufferCapabilities.FlipContents.UNDEFINED));
+                created = true;
+            } catch (AWTException e) {
+                Log.d(TAG, "page flipping not available, falling back to blitting: " + e.getMessage());
+            }
+        }
+
+        if (!created) {
+            createBufferStrategy(BUFFERS_COUNT);
+        }
+
+        mStrategy = getBufferStrategy();
+        mPageFlipping = mStrategy != null && mStrategy.getCapabilities().isPageFlipping();
+        return mStrategy;
+    }
+
+    /**
+     * Requests a page flipping buffer strategy, typically while the window is in full-screen exclusive mode. The strategy is recreated on next frame
+     * */
+    public void setPageFlippingPreferred(boolean pageFlippingPreferred) {
+        if (mPageFlippingPreferred != pageFlippingPreferred) {
+            mPageFlippingPreferred = pageFlippingPreferred;
+            disposeStrategy();
+        }
+    }
+
+    public boolean isPageFlippingPreferred() {
+        return mPageFlippingPreferred;
+    }
+
+    /**
+     * @return whether the current strategy presents by page flipping rather than blitting
+     * */
+    public boolean isPageFlipping() {
+        return mPageFlipping;
+    }
+
+    /**
+     * Renders and presents a frame, creating the strategy if needed. UI thread
+     *
+     * @param painter draws the frame over a background filled with {@link GlConfig#bg()}
+     * @return whether the frame was presented. False if the canvas is not displayable yet
+     * */
+    public boolean renderFrame(@NotNull Consumer<Graphics2D> painter) {
+        synchronized (mStrategyLock) {
+            final BufferStrategy strategy = ensureStrategy();
+            if (strategy == null)
+                return false;
+
+            present(strategy, painter);
+            return true;
+        }
+    }
+
+    /**
+     * Renders and presents a frame from any thread, with the existing strategy
+     *
+     * @param painter draws the frame over a background filled with {@link GlConfig#bg()}
+     * @return whether the frame was presented. False if there is no strategy yet, see {@link #renderFrame(Consumer)}
+     * */
+    public boolean presentFrame(@NotNull Consumer<Graphics2D> painter) {
+        synchronized (mStrategyLock) {
+            final BufferStrategy strategy = mStrategy;
+            if (strategy == null)
+                return false;
+
+            present(strategy, painter);
+            return true;
+        }
+    }
+
+    private void present(@NotNull BufferStrategy strategy, @NotNull Consumer<Graphics2D> painter) {
+        final int width = getWidth(), height = getHeight();
+
+        do {
+            do {
+                final Graphics2D g = (Graphics2D) strategy.getDrawGraphics();
+                try {
+                    g.setColor(GlConfig.bg());
+                    g.fillRect(0, 0, width, height);
+                    painter.accept(g);
+                } finally {
+                    g.dispose();
+                }
+            } while (strategy.contentsRestored());
+
+            final long start = System.nanoTime();
+            strategy.show();
+            Toolkit.getDefaultToolkit().sync();
+            onPresented(System.nanoTime() - start);
+        } while (strategy.contentsLost());
+    }
+
+    private void onPresented(long presentNanos) {
+        mLastPresentNanos = presentNanos;
+        mAvgPresentNanos = mAvgPresentNanos < 0? presentNanos: mAvgPresentNanos + (presentNanos - mAvgPresentNanos) * LATENCY_SMOOTHING;
+        mFramesPresented++;
+    }
+
+    /**
+     * @return time taken by the last {@link BufferStrategy#show()}, in nanoseconds
+     * */
+    public long getLastPresentNanos() {
+        return mLastPresentNanos;
+    }
+
+    /**
+     * @return moving average of present time, in milliseconds
+     * */
+    public double getPresentLatencyMs() {
+        return Math.max(0, mAvgPresentNanos) / 1e6;
+    }
+
+    public long getFramesPresented() {
+        return mFramesPresented;
+    }
+}
@@ -0,0 +1,126 @@
+package main.ui;
+
+/**
+ * Picks the internal resolution frames are drawn at while playing, as a fraction of the panel size, so that fill-bound frames fit a time budget.
+ * Frames drawn at a reduced resolution are scaled up to full size as they are presented, so frame times measured cover drawing only.
+ *
+ * <p>
+ * Frame cost is assumed proportional to the number of pixels. After {@link #OVER_BUDGET_FRAMES} consecutive frames over budget, the scale
+ * drops straight to the level predicted to take {@link #TARGET} of the budget. It rises one level at a time, once the predicted
+ * cost of the next level has stayed under that target for {@link #UP_FRAMES} frames
+ * <p>
+ * Scales are limited to a few {@link #LEVELS}, so that frame images are not reallocated on every change
+ * <p>
+ * Thread-safe
+ */
+public class DynamicResolution {
+
+    public static final float[] LEVELS = { 1f, 0.875f, 0.75f, 0.625f, 0.5f };
+
+    public static final int OVER_BUDGET_FRAMES = 2;
+    public static final int UP_FRAMES = 20;
+
+    /**
+     * Fraction of the budget a frame is aimed to take
+     * */
+    public static final float TARGET = 0.8f;
+
+    private long mBudgetNanos;
+    private volatile int mLevel;
+
+    private int mOverBudgetFrames;
+    private int mUnderTargetFrames;
+    private boolean mSkipNext;
+
+    public DynamicResolution(long budgetNanos) {
+        mBudgetNanos = budgetNanos;
+    }
+
+    /**
+     * @return current resolution scale, in (0, 1]. Lock-free
+     * */
+    public float getScale() {
+        return LEVELS[mLevel];
+    }
+
+    public boolean isMinimum() {
+        return mLevel == LEVELS.length - 1;
+    }
+
+    public boolean isFull() {
+        return mLevel == 0;
+    }
+
+    public synchronized long getBudgetNanos() {
+        return mBudgetNanos;
+    }
+
+    public synchronized void setBudgetNanos(long budgetNanos) {
+        if (mBudgetNanos != budgetNanos) {
+            mBudgetNanos = budgetNanos;
+            mOverBudgetFrames = mUnderTargetFrames = 0;
+        }
+    }
+
+    /**
+     * Records the time taken by a frame drawn at the given scale
+     *
+     * @return whether the scale changed
+     * */
+    public synchronized boolean onFrame(float scale, long frameNanos) {
+        final int level = mLevel;
+        if (scale != LEVELS[level] || mSkipNext) {
+            mSkipNext = false;     // drawn before the last change, or the first frame after it
+            return false;
+        }
+
+        final double target = mBudgetNanos * (double) TARGET;
+        if (frameNanos > mBudgetNanos) {
+            mUnderTargetFrames = 0;
+            if (++mOverBudgetFrames >= OVER_BUDGET_FRAMES && level < LEVELS.length - 1) {
+                final double wanted = scale * Math.sqrt(target / frameNanos);
+                int next = level + 1;
+                while (next < LEVELS.length - 1 && LEVELS[next] > wanted) {
+                    next++;
+                }
+
+                setLevel(next);
+                return true;
+            }
+        } else {
+            mOverBudgetFrames = 0;
+            if (level > 0) {
+                final double ratio = LEVELS[level - 1] / (double) scale;
+                if (frameNanos * ratio * ratio < target) {
+                    if (++mUnderTargetFrames >= UP_FRAMES) {
+                        setLevel(level - 1);
+                        return true;
+                    }
+                } else {
+                    mUnderTargetFrames = 0;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    private void setLevel(int level) {
+        mLevel = level;
+        mOverBudgetFrames = mUnderTargetFrames = 0;
+        mSkipNext = true;
+    }
+
+    /**
+     * Back to full resolution
+     * */
+    public synchronized void reset() {
+        setLevel(0);
+        mSkipNext = false;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "DynamicResolution{scale=" + getScale() + ", budget=" + mBudgetNanos / 1e6 + " ms}";
+    }
+}
@@ -0,0 +1,179 @@
+package main.ui;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of rendered frames, keyed by {@link FrameState} with the times factor quantized ({@link #quantize(float, float)})
+ *
+ * <p>
+ * Frames are evicted least recently used first once the memory budget is exceeded, but the most recently put frame is always retained.
+ * Evicted images are recycled through {@link #obtainImage(int, int)}, except the one last handed out for display (pinned), so that a
+ * background producer never draws into an image that is being shown.
+ * <p>
+ * Thread-safe
+ */
+public class FrameCache {
+
+    /**
+     * Evicted images kept for reuse
+     * */
+    private static final int FREE_IMAGES_MAX = 2;
+
+    public static float quantize(float timesFactor, float quantum) {
+        return quantum > 0? (float) (Math.round(timesFactor / (double) quantum) * (double) quantum): timesFactor;
+    }
+
+    public static long imageBytes(@NotNull BufferedImage image) {
+        return (long) image.getWidth() * image.getHeight() * Integer.BYTES;
+    }
+
+    @NotNull
+    private final LinkedHashMap<FrameState, BufferedImage> mFrames = new LinkedHashMap<>(16, 0.75f, true);
+    @NotNull
+    private final ArrayDeque<BufferedImage> mFreeImages = new ArrayDeque<>(FREE_IMAGES_MAX);
+    @Nullable
+    private BufferedImage mPinned;
+
+    private long mBudgetBytes;
+    private long mBytes;
+
+    private long mHits;
+    private long mMisses;
+    private long mEvictions;
+
+    public FrameCache(long budgetBytes) {
+        mBudgetBytes = budgetBytes;
+    }
+
+    /**
+     * @return cached frame for the key, which is pinned, or {@code null} on a miss
+     * */
+    @Nullable
+    public synchronized BufferedImage get(@NotNull FrameState key) {
+        final BufferedImage image = mFrames.get(key);
+        if (image != null) {
+            mHits++;
+            mPinned = image;
+        } else {
+            mMisses++;
+        }
+
+        return image;
+    }
+
+    /**
+     * Same as {@link #get(FrameState)} != null, without touching stats or LRU order
+     * */
+    public synchronized boolean contains(@NotNull FrameState key) {
+        return mFrames.containsKey(key);
+    }
+
+    /**
+     * @param pin whether the image is about to be displayed
+     * */
+    public synchronized void put(@NotNull FrameState key, @NotNull BufferedImage image, boolean pin) {
+        final BufferedImage old = mFrames.put(key, image);
+        if (old != null) {
+            mBytes -= imageBytes(old);
+            if (old != image) {
+                recycle(old);
+            }
+        }
+
+        mBytes += imageBytes(image);
+        if (pin) {
+            mPinned = image;
+        }
+
+        trim();
+    }
+
+    private void trim() {
+        final Iterator<Map.Entry<FrameState, BufferedImage>> itr = mFrames.entrySet().iterator();
+        while (mBytes > mBudgetBytes && mFrames.size() > 1 && itr.hasNext()) {
+            final BufferedImage image = itr.next().getValue();
+            itr.remove();
+            mBytes -= imageBytes(image);
+            mEvictions++;
+            recycle(image);
+        }
+    }
+
+    private void recycle(@NotNull BufferedImage image) {
+        if (image != mPinned && mFreeImages.size() < FREE_IMAGES_MAX) {
+            mFreeImages.add(image);
+        }
+    }
+
+    /**
+     * @return an image to render a frame into, recycled if one of the given size is available. Its contents are undefined
+     * */
+    @NotNull
+    public synchronized BufferedImage obtainImage(int width, int height) {
+        BufferedImage image;
+        while ((image = mFreeImages.poll()) != null) {
+            if (image.getWidth() == width && image.getHeight() == height && image != mPinned)
+                return image;
+        }
+
+        return new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    }
+
+    /**
+     * Returns an obtained image that did not make it into the cache
+     * */
+    public synchronized void release(@NotNull BufferedImage image) {
+        recycle(image);
+    }
+
+    public synchronized void clear() {
+        mFrames.clear();
+        mFreeImages.clear();
+        mBytes = 0;
+    }
+
+    public synchronized void setBudgetBytes(long budgetBytes) {
+        mBudgetBytes = budgetBytes;
+        trim();
+    }
+
+    public synchronized long getBudgetBytes() {
+        return mBudgetBytes;
+    }
+
+    public synchronized long getBytes() {
+        return mBytes;
+    }
+
+    public synchronized int size() {
+        return mFrames.size();
+    }
+
+    public synchronized long getHits() {
+        return mHits;
+    }
+
+    public synchronized long getMisses() {
+        return mMisses;
+    }
+
+    public synchronized long getEvictions() {
+        return mEvictions;
+    }
+
+    public synchronized void resetStats() {
+        mHits = mMisses = mEvictions = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("FrameCache{frames=%d, bytes=%d/%d, hits=%d, misses=%d, evictions=%d}", mFrames.size(), mBytes, mBudgetBytes, mHits, mMisses, mEvictions);
+    }
+}
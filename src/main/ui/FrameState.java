@@ -0,0 +1,158 @@
+package main.ui;
+
+import main.render.RenderMode;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Objects;
+
+/**
+ * Immutable snapshot of everything a frame of {@link TimesTablePanel} depends on. Two frames with equal states render identically
+ */
+public class FrameState {
+
+    public final float timesFactor;
+    public final int pointsCount;
+
+    public final int width;
+    public final int height;
+
+    public final double scale;
+    public final double dragX;
+    public final double dragY;
+    public final boolean invertX;
+    public final boolean invertY;
+
+    public final boolean drawCircle;
+    public final boolean drawPoints;
+
+    public final boolean darkMode;
+    @NotNull
+    public final GlConfig.PatternColorMode patternColorMode;
+    @NotNull
+    public final RenderMode renderMode;
+    @NotNull
+    public final RenderQuality quality;
+    /**
+     * Internal resolution as a fraction of the size, see {@link #renderWidth()}
+     * */
+    public final float resolutionScale;
+
+    /**
+     * Whether the animation was playing when the state was published. Decides how the frame is handled (caching, adaptive quality),
+     * not what it shows, so it takes no part in {@link #equals(Object)}
+     * */
+    public final boolean playing;
+
+    public FrameState(float timesFactor, int pointsCount,
+                      int width, int height,
+                      double scale, double dragX, double dragY, boolean invertX, boolean invertY,
+                      boolean drawCircle, boolean drawPoints,
+                      boolean darkMode, @NotNull GlConfig.PatternColorMode patternColorMode, @NotNull RenderMode renderMode,
+                      @NotNull RenderQuality quality, float resolutionScale,
+                      boolean playing) {
+        this.timesFactor = timesFactor;
+        this.pointsCount = pointsCount;
+        this.width = width;
+        this.height = height;
+        this.scale = scale;
+        this.dragX = dragX;
+        this.dragY = dragY;
+        this.invertX = invertX;
+        this.invertY = invertY;
+        this.drawCircle = drawCircle;
+        this.drawPoints = drawPoints;
+        this.darkMode = darkMode;
+        this.patternColorMode = patternColorMode;
+        this.renderMode = renderMode;
+        this.quality = quality;
+        this.resolutionScale = resolutionScale;
+        this.playing = playing;
+    }
+
+    /**
+     * @return width of the image the frame is drawn into, scaled to {@link #width} when presented
+     * */
+    public int renderWidth() {
+        return Math.max(1, Math.round(width * resolutionScale));
+    }
+
+    public int renderHeight() {
+        return Math.max(1, Math.round(height * resolutionScale));
+    }
+
+    @NotNull
+    public FrameState withTimesFactor(float timesFactor) {
+        if (this.timesFactor == timesFactor)
+            return this;
+
+        return new FrameState(timesFactor, pointsCount, width, height, scale, dragX, dragY, invertX, invertY, drawCircle, drawPoints, darkMode, patternColorMode, renderMode, quality, resolutionScale, playing);
+    }
+
+    /**
+     * @return the same frame seen with another view transform
+     * */
+    @NotNull
+    public FrameState withView(double scale, double dragX, double dragY) {
+        if (this.scale == scale && this.dragX == dragX && this.dragY == dragY)
+            return this;
+
+        return new FrameState(timesFactor, pointsCount, width, height, scale, dragX, dragY, invertX, invertY, drawCircle, drawPoints, darkMode, patternColorMode, renderMode, quality, resolutionScale, playing);
+    }
+
+    /**
+     * @return whether this frame and the given one differ at most in view transform, quality and resolution, so that one can be drawn
+     * as a transformed image of the other
+     * */
+    public boolean isViewOf(@NotNull FrameState other) {
+        return withFullQuality().withView(other.scale, other.dragX, other.dragY).equals(other.withFullQuality());
+    }
+
+    /**
+     * @return the same frame at full quality and resolution
+     * */
+    @NotNull
+    public FrameState withFullQuality() {
+        if (quality == RenderQuality.FULL && resolutionScale == 1)
+            return this;
+
+        return new FrameState(timesFactor, pointsCount, width, height, scale, dragX, dragY, invertX, invertY, drawCircle, drawPoints, darkMode, patternColorMode, renderMode, RenderQuality.FULL, 1, playing);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+
+        if (o instanceof FrameState) {
+            final FrameState s = (FrameState) o;
+            return timesFactor == s.timesFactor
+                    && pointsCount == s.pointsCount
+                    && width == s.width
+                    && height == s.height
+                    && scale == s.scale
+                    && dragX == s.dragX
+                    && dragY == s.dragY
+                    && invertX == s.invertX
+                    && invertY == s.invertY
+                    && drawCircle == s.drawCircle
+                    && drawPoints == s.drawPoints
+                    && darkMode == s.darkMode
+                    && patternColorMode == s.patternColorMode
+                    && renderMode == s.renderMode
+                    && quality == s.quality
+                    && resolutionScale == s.resolutionScale;
+        }
+
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(timesFactor, pointsCount, width, height, scale, dragX, dragY, invertX, invertY, drawCircle, drawPoints, darkMode, patternColorMode, renderMode, quality, resolutionScale);
+    }
+
+    @Override
+    public String toString() {
+        return "FrameState{timesFactor=" + timesFactor + ", pointsCount=" + pointsCount + ", size=" + width + "x" + height + ", scale=" + scale + ", quality=" + quality + ", resolutionScale=" + resolutionScale + ", playing=" + playing + "}";
+    }
+}
@@ -5,6 +5,7 @@ import main.R;
 import main.util.Log;
 import org.jetbrains.annotations.NotNull;
 import main.math.RMath;
+import main.render.RenderMode;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.Unmodifiable;
 
@@ -22,13 +23,43 @@ public class GlConfig {
 
     public static final boolean DEFAULT_DRAW_CIRCLE = false;
     public static final boolean DEFAULT_DRAW_POINTS = false;
+    /* Level of detail */
+    public static final double LOD_CHORDS_PER_PIXEL = 1;
+    public static final double LOD_MAX_CHORDS = 100_000;
+
+    @NotNull
+    public static final RenderMode DEFAULT_RENDER_MODE = RenderMode.JAVA2D;
+    public static final boolean DEFAULT_ACTIVE_RENDERING = false;
+    public static final boolean DEFAULT_BACKGROUND_RENDERING = true;
+    public static final int DEFAULT_TARGET_FRAME_RATE = 60;
+    public static final boolean DEFAULT_ADAPTIVE_QUALITY = true;
+    public static final boolean DEFAULT_DYNAMIC_RESOLUTION = true;
+    public static final boolean DEFAULT_TRANSFORM_FAST_PATH = true;
+    public static final int TRANSFORM_SETTLE_MS = 120;         // pan/zoom stable for this long before a crisp frame is drawn
+    public static final int HIDDEN_FRAME_RATE = 2;         // simulation ticks per second while hidden or iconified
+
+    /* Frame cache */
+    public static final long DEFAULT_FRAME_CACHE_BUDGET_BYTES = 256L << 20;
+    public static final float FRAME_CACHE_TIMES_FACTOR_QUANTUM = 0.01f;      // matches the precision of the status text
+    public static final int FRAME_CACHE_PREFETCH_RADIUS = 4;               // slider values on each side, 0 to disable
+
+    /* Heat map */
+    public static final boolean DEFAULT_HEAT_MAP_VISIBLE = false;
+    public static final int HEAT_MAP_PREFERRED_WIDTH = 420;
+    public static final int HEAT_MAP_POINTS_MAX = 1000;                    // cells beyond cost too much to fill a tile interactively
 
     // .................. Transforms  ................
     public static final boolean DEFAULT_INVERT_X = false;
     public static final boolean DEFAULT_INVERT_Y = false;
 
     public static final double DEFAULT_SALE_MIN = 0.1;
-    public static final double DEFAULT_SCALE_MAX = 50;
+    public static final double DEFAULT_SCALE_MAX = 1e6;
+    public static final double DEEP_ZOOM_SCALE = 50;                    // above this, zoom steps are multiplicative
+    public static final double DEEP_ZOOM_WHEEL_FACTOR = 1.25;           // per wheel notch
+    public static final double DEEP_ZOOM_UNIT_FACTOR = 1.5;
+    public static final double VIEWPORT_CULL_MARGIN_PX = 4;             // chords are clipped this far outside the view, to cover strokes
+    public static final double CIRCLE_ARC_TOLERANCE_PX = 0.25;          // max deviation of the sampled circle outline when zoomed in
+    public static final int CIRCLE_ARC_SEGMENTS_MAX = 4096;
     public static final double SCALE_WHEEL_ROTATION_MULTIPLIER = 0.2;
     public static final double DEFAULT_SCALE_UNIT_INCREMENT = 0.5;
     public static final double DEFAULT_SCALE_UNIT_DECREMENT_BELOW_1 = 0.1;
@@ -165,7 +196,7 @@ public class GlConfig {
 
     @NotNull
     public static Color circleColor(float timesFactor) {
-        return sPatternColorMode == PatternColorMode.PATTERN? patternColorExplicit(timesFactor): fgLight();
+        return sPatternColorMode == PatternColorMode.PATTERN? linePalette(1, timesFactor).color(0): fgLight();
 
 //        return fgLight();
     }
@@ -203,23 +234,163 @@ public class GlConfig {
         };
     }
 
-    @NotNull
-    public static IntFunction<Color> patternColorFunction(int count, float timesFactor) {
-        switch (sPatternColorMode) {
-            case LINE -> {
-                return i -> lineColorExplicit(i, count);
+    /* Line palette: packed ARGB colours of lines along with Color instances, cached per thread and rebuilt only when its key changes */
+
+    /**
+     * Colours of the lines of a frame, for current colour mode and theme. Single colour modes have only one entry, which in
+     * {@link PatternColorMode#PATTERN} mode is updated in place as the hue follows the times factor
+     * <p>
+     * {@link Color} instances are created on first use and the pattern entry is mutable, so a palette is confined to the thread that
+     * obtained it (see {@link #linePalette(int, float)})
+     * */
+    public static final class LinePalette {
+
+        @NotNull
+        public final PatternColorMode mode;
+        public final int size;
+        public final boolean darkMode;
+        /* hue of the single entry in PATTERN mode */
+        private float mHue = Float.NaN;
+
+        @NotNull
+        private final int[] mArgb;
+        @NotNull
+        private final Color[] mColors;
+
+        private LinePalette(@NotNull PatternColorMode mode, int size, boolean darkMode) {
+            this.mode = mode;
+            this.size = size;
+            this.darkMode = darkMode;
+
+            mArgb = new int[size];
+            mColors = new Color[size];
+            switch (mode) {
+                case NONE -> {
+                    mColors[0] = patternModeNoneColorExplicit();
+                    mArgb[0] = mColors[0].getRGB();
+                }
+                case PATTERN -> { }     // see setHue()
+                case LINE -> {
+                    for (int i=0; i < size; i++) {
+                        mArgb[i] = Color.HSBtoRGB(RMath.map(i, 0, size, 0, 1), 1, 1);
+                    }
+                }
             }
+        }
 
-            case PATTERN -> {
-                final Color c = patternColorExplicit(timesFactor);
-                return i -> c;
+        private boolean matches(@NotNull PatternColorMode mode, int size, boolean darkMode) {
+            return this.mode == mode && this.size == size && this.darkMode == darkMode;
+        }
+
+        private void setHue(float hue) {
+            if (mode == PatternColorMode.PATTERN && mHue != hue) {
+                mHue = hue;
+                mArgb[0] = Color.HSBtoRGB(hue, 1, 1);
+                mColors[0] = null;
             }
+        }
 
-            default -> {
-                final Color c = patternModeNoneColorExplicit();
-                return i -> c;
+        /**
+         * @return packed ARGB colour of the line starting at given point index
+         * */
+        public int argb(int index) {
+            return size == 1? mArgb[0]: mArgb[index];
+        }
+
+        /**
+         * @return shared colour of the line starting at given point index
+         * */
+        @NotNull
+        public Color color(int index) {
+            if (size == 1) {
+                index = 0;
+            }
+
+            Color c = mColors[index];
+            if (c == null) {
+                c = new Color(mArgb[index], true);
+                mColors[index] = c;
             }
+
+            return c;
         }
     }
 
+    @NotNull
+    private static final ThreadLocal<LinePalette> sLinePalette = new ThreadLocal<>();
+
+    /**
+     * @return palette of lines for given points count, keyed by (count, colour mode, dark mode). The last palette is cached per thread,
+     * so drawing threads neither evict each other's palette nor share lazily created colours. A new palette is only allocated when the
+     * key of the calling thread changes. In {@link PatternColorMode#PATTERN} mode the count is not part of the key, and a change of times
+     * factor only recomputes the single colour, so each frame of playback allocates at most that {@link Color}. In
+     * {@link PatternColorMode#LINE} mode, each drawing thread keeps {@code count} colours
+     * */
+    @NotNull
+    public static LinePalette linePalette(int count, float timesFactor) {
+        final PatternColorMode mode = sPatternColorMode;
+        final boolean darkMode = sDarkMode;
+        final int size = mode == PatternColorMode.LINE? Math.max(1, count): 1;
+
+        LinePalette palette = sLinePalette.get();
+        if (palette == null || !palette.matches(mode, size, darkMode)) {
+            palette = new LinePalette(mode, size, darkMode);
+            sLinePalette.set(palette);
+        }
+
+        if (mode == PatternColorMode.PATTERN) {
+            palette.setHue(mapTimesFactorToHue(timesFactor));
+        }
+
+        return palette;
+    }
+
+    /**
+     * @param intensity tone mapped density of a pixel, in range [0, 1]
+     * @return packed (opaque, non-premultiplied) colour of a pixel of given density. In {@link PatternColorMode#LINE} mode, where chords
+     * have no single colour, the hue ramps with density instead
+     * */
+    public static int densityColorArgb(float intensity, float timesFactor) {
+        return switch (sPatternColorMode) {
+            case NONE -> patternModeNoneColorExplicit().getRGB();
+            case LINE -> Color.HSBtoRGB(RMath.map(intensity, 0, 1, DENSITY_HUE_SPARSE, DENSITY_HUE_DENSE), 1, 1);
+            case PATTERN -> Color.HSBtoRGB(mapTimesFactorToHue(timesFactor), 1, 1);
+        };
+    }
+
+    private static final float DENSITY_HUE_SPARSE = 0.66f;      // blue
+    private static final float DENSITY_HUE_DENSE = 0f;          // red
+
+    /* Colour buckets, used to batch lines of similar colour */
+
+    public static final int LINE_COLOR_BUCKETS_MAX = 64;
+
+    /**
+     * @return number of distinct line colours for current colour mode. Single colour modes collapse to 1 bucket
+     * */
+    public static int lineColorBucketCount(int count) {
+        return sPatternColorMode == PatternColorMode.LINE? Math.min(count, LINE_COLOR_BUCKETS_MAX): 1;
+    }
+
+    /**
+     * @return bucket of line at given index, in range [0, buckets)
+     * */
+    public static int lineColorBucket(int index, int count, int buckets) {
+        return buckets == 1? 0: (int) ((long) index * buckets / count);
+    }
+
+    @NotNull
+    public static Color lineColorOfBucket(int bucket, int buckets, float timesFactor) {
+        return switch (sPatternColorMode) {
+            case NONE -> patternModeNoneColorExplicit();
+            case LINE -> lineColorExplicit(bucket + 0.5f, buckets);
+            case PATTERN -> patternColorExplicit(timesFactor);
+        };
+    }
+
+    @NotNull
+    public static IntFunction<Color> patternColorFunction(int count, float timesFactor) {
+        return linePalette(count, timesFactor)::color;
+    }
+
 }
@@ -0,0 +1,533 @@
+package main.ui;
+
+import main.R;
+import main.math.ChordBuffer;
+import main.math.SweepMetric;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.HierarchyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Heat map of a {@link SweepMetric} over the parameter space of a {@link TimesTablePanel}: times factor across, points count down
+ *
+ * <p>
+ * The map is split into tiles of {@link #TILE_SIZE} pixels at discrete zoom levels. Visible tiles missing from the cache are computed on
+ * worker threads, nearest to the center first, and appear as they complete. Until then, the tile of the next coarser level is drawn
+ * scaled up in their place if it is cached. Tiles that leave the view before they are done are cancelled, so panning and zooming never wait
+ * on stale work. Finished tiles are kept in an LRU cache of {@link #TILE_CACHE_CAPACITY}
+ * <p>
+ * Clicking a cell sets the points count and times factor of the panel. Drag to pan, wheel to zoom
+ * <p>
+ * Tiles are requested when the view changes (pan, zoom, resize, metric), not on paint, so repaints only draw
+ * <p>
+ * All state is confined to the UI thread, workers only fill the tile they are given
+ */
+public class HeatMapPanel extends JPanel {
+
+    public static final String TAG = "HeatMap";
+
+    public static final int TILE_SIZE = 64;
+    public static final int TILE_CACHE_CAPACITY = 512;
+
+    public static final int ZOOM_MIN = 0;
+    public static final int ZOOM_MAX = 9;
+    public static final int ZOOM_DEFAULT = 6;
+
+    /**
+     * Zoom level at which a pixel row is one points count. Each level up doubles both the points count and times factor per pixel
+     * */
+    public static final int ZOOM_POINTS_UNIT = 6;
+
+    public static final int POINTS_COUNT_MIN = TimesTablePanel.POINTS_COUNT_MIN;
+    public static final int POINTS_COUNT_MAX = GlConfig.HEAT_MAP_POINTS_MAX;
+    public static final float TIMES_FACTOR_MIN = TimesTablePanel.TIMES_FACTOR_MIN;
+    public static final float TIMES_FACTOR_MAX = TimesTablePanel.TIMES_FACTOR_MAX;
+    public static final float TIMES_FACTOR_QUANTUM = GlConfig.FRAME_CACHE_TIMES_FACTOR_QUANTUM;
+
+    /**
+     * Identifies a tile: zoom level, metric and position in tiles
+     * */
+    private static final class TileKey {
+
+        final int zoom;
+        @NotNull
+        final SweepMetric metric;
+        final int x, y;
+
+        TileKey(int zoom, @NotNull SweepMetric metric, int x, int y) {
+            this.zoom = zoom;
+            this.metric = metric;
+            this.x = x;
+            this.y = y;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+
+            if (o instanceof TileKey) {
+                final TileKey k = (TileKey) o;
+                return zoom == k.zoom && metric == k.metric && x == k.x && y == k.y;
+            }
+
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return ((zoom * 31 + metric.ordinal()) * 31 + x) * 31 + y;
+        }
+    }
+
+    private static final class Tile {
+
+        @NotNull
+        final BufferedImage image;
+        /* NaN outside the parameter space */
+        @NotNull
+        final float[] values;
+
+        Tile(@NotNull BufferedImage image, @NotNull float[] values) {
+            this.image = image;
+            this.values = values;
+        }
+    }
+
+    /**
+     * Computes one tile on a worker thread. Checks for cancellation between rows
+     * */
+    private final class TileTask implements Runnable {
+
+        @NotNull
+        final TileKey key;
+        volatile boolean cancelled;
+        @Nullable
+        Future<?> future;
+
+        TileTask(@NotNull TileKey key) {
+            this.key = key;
+        }
+
+        void cancel() {
+            cancelled = true;
+            if (future != null) {
+                future.cancel(false);
+            }
+        }
+
+        @Override
+        public void run() {
+            if (cancelled)
+                return;
+
+            final ChordBuffer geometry = sGeometry.get();
+            final float[] values = new float[TILE_SIZE * TILE_SIZE];
+            final BufferedImage image = new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_ARGB);
+            final int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+
+            final SweepMetric metric = key.metric;
+            final int zoom = key.zoom;
+            final long x0 = (long) key.x * TILE_SIZE, y0 = (long) key.y * TILE_SIZE;
+            for (int row=0; row < TILE_SIZE; row++) {
+                if (cancelled)
+                    return;
+
+                final int pointsCount = pointsCountAt(zoom, y0 + row);
+                for (int col=0; col < TILE_SIZE; col++) {
+                    final float timesFactor = timesFactorAt(zoom, x0 + col, metric);
+                    final int i = row * TILE_SIZE + col;
+                    if (pointsCount < 0 || Float.isNaN(timesFactor)) {
+                        values[i] = Float.NaN;
+                        continue;
+                    }
+
+                    final float value = metric.evaluate(pointsCount, timesFactor, geometry);
+                    values[i] = value;
+                    pixels[i] = heatColor(metric.normalized(value, pointsCount));
+                }
+            }
+
+            final Tile tile = new Tile(image, values);
+            SwingUtilities.invokeLater(() -> onTileDone(this, tile));
+        }
+    }
+
+    @NotNull
+    private static final ThreadLocal<ChordBuffer> sGeometry = ThreadLocal.withInitial(ChordBuffer::new);
+
+    @NotNull
+    private final TimesTablePanel mTarget;
+    @NotNull
+    private final ExecutorService mWorkers;
+
+    @NotNull
+    private final LinkedHashMap<TileKey, Tile> mTiles = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<TileKey, Tile> eldest) {
+            return size() > TILE_CACHE_CAPACITY;
+        }
+    };
+    @NotNull
+    private final HashMap<TileKey, TileTask> mPending = new HashMap<>();
+    /* visible tiles in request order, kept by syncTiles() for painting */
+    @NotNull
+    private final ArrayList<TileKey> mVisibleTiles = new ArrayList<>();
+    @NotNull
+    private final HashSet<TileKey> mVisibleTileSet = new HashSet<>();
+
+    @NotNull
+    private SweepMetric mMetric = SweepMetric.CHORD_COUNT;
+    private int mZoom = ZOOM_DEFAULT;
+    /* world pixel at the top-left corner of the view */
+    private double mOriginX;
+    private double mOriginY;
+
+    @Nullable
+    private Point mDragStart;
+    private double mDragStartOriginX;
+    private double mDragStartOriginY;
+    private boolean mDragged;
+
+    public HeatMapPanel(@NotNull TimesTablePanel target) {
+        mTarget = target;
+
+        final int workers = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        mWorkers = Executors.newFixedThreadPool(workers, r -> {
+            final Thread thread = new Thread(r, TAG + "-Tile");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+
+        setPreferredSize(new Dimension(GlConfig.HEAT_MAP_PREFERRED_WIDTH, 0));
+        setToolTipText("");     // enables getToolTipText(MouseEvent)
+
+        final MouseAdapter mouseHandler = new MouseHandler();
+        addMouseListener(mouseHandler);
+        addMouseMotionListener(mouseHandler);
+        addMouseWheelListener(mouseHandler);
+
+        addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                syncTiles();
+            }
+        });
+
+        addHierarchyListener(e -> {
+            if ((e.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) != 0) {
+                if (isShowing()) {
+                    syncTiles();
+                } else {
+                    cancelPending();
+                }
+            }
+        });
+    }
+
+
+    /* Parameter space */
+
+    private static double timesFactorPerPixel(int zoom) {
+        return TIMES_FACTOR_QUANTUM * (double) (1L << zoom);
+    }
+
+    private static double pointsPerPixel(int zoom) {
+        return Math.scalb(1.0, zoom - ZOOM_POINTS_UNIT);
+    }
+
+    /**
+     * @return points count of a world pixel row, or -1 outside the parameter space
+     * */
+    private static int pointsCountAt(int zoom, long worldY) {
+        if (worldY < 0)
+            return -1;
+
+        final double n = POINTS_COUNT_MIN + Math.floor(worldY * pointsPerPixel(zoom));
+        return n > POINTS_COUNT_MAX? -1: (int) n;
+    }
+
+    /**
+     * @return times factor of a world pixel column, or NaN outside the parameter space. Cycles are only defined for integral factors,
+     * so for that metric the nearest integer is taken
+     * */
+    private static float timesFactorAt(int zoom, long worldX, @NotNull SweepMetric metric) {
+        if (worldX < 0)
+            return Float.NaN;
+
+        float timesFactor = FrameCache.quantize((float) (TIMES_FACTOR_MIN + worldX * timesFactorPerPixel(zoom)), TIMES_FACTOR_QUANTUM);
+        if (metric == SweepMetric.CYCLE_COUNT) {
+            timesFactor = Math.round(timesFactor);
+        }
+
+        return timesFactor > TIMES_FACTOR_MAX? Float.NaN: timesFactor;
+    }
+
+    private static double worldX(int zoom, float timesFactor) {
+        return (timesFactor - TIMES_FACTOR_MIN) / timesFactorPerPixel(zoom);
+    }
+
+    private static double worldY(int zoom, int pointsCount) {
+        return (pointsCount - POINTS_COUNT_MIN) / pointsPerPixel(zoom);
+    }
+
+    /**
+     * @return ARGB of a normalized value, from dark blue through green to yellow. NaN is transparent
+     * */
+    private static int heatColor(float t) {
+        if (Float.isNaN(t))
+            return 0;
+
+        return Color.HSBtoRGB(0.66f - 0.5f * t, 0.85f, 0.3f + 0.7f * t);
+    }
+
+
+    /* State */
+
+    @NotNull
+    public final SweepMetric getMetric() {
+        return mMetric;
+    }
+
+    public final void setMetric(@NotNull SweepMetric metric) {
+        if (mMetric == metric)
+            return;
+
+        mMetric = metric;
+        syncTiles();
+        repaint();
+    }
+
+    public final int getZoom() {
+        return mZoom;
+    }
+
+    /**
+     * Changes the zoom level, keeping the cell under the given view point in place
+     * */
+    public final void setZoom(int zoom, @NotNull Point anchor) {
+        zoom = Math.max(ZOOM_MIN, Math.min(ZOOM_MAX, zoom));
+        if (mZoom == zoom)
+            return;
+
+        final double factor = Math.scalb(1.0, mZoom - zoom);
+        mOriginX = (mOriginX + anchor.x) * factor - anchor.x;
+        mOriginY = (mOriginY + anchor.y) * factor - anchor.y;
+        mZoom = zoom;
+        syncTiles();
+        repaint();
+    }
+
+    /**
+     * Stops all tile computations in flight. Their tiles are computed again when next needed
+     * */
+    public final void cancelPending() {
+        for (TileTask task: mPending.values()) {
+            task.cancel();
+        }
+
+        mPending.clear();
+    }
+
+    public final void clearCache() {
+        cancelPending();
+        mTiles.clear();
+        syncTiles();
+        repaint();
+    }
+
+    /**
+     * Stops the workers. The panel can not compute tiles afterwards
+     * */
+    public final void dispose() {
+        cancelPending();
+        mWorkers.shutdownNow();
+    }
+
+
+    /* Tiles */
+
+    private void onTileDone(@NotNull TileTask task, @NotNull Tile tile) {
+        if (task.cancelled || mPending.get(task.key) != task)
+            return;
+
+        mPending.remove(task.key);
+        mTiles.put(task.key, tile);
+        if (task.key.zoom == mZoom && task.key.metric == mMetric) {
+            repaint((int) Math.floor(task.key.x * (double) TILE_SIZE - mOriginX), (int) Math.floor(task.key.y * (double) TILE_SIZE - mOriginY), TILE_SIZE + 1, TILE_SIZE + 1);
+        }
+    }
+
+    /**
+     * Requests the missing visible tiles, nearest to the center first, and cancels pending ones that are no longer visible. The visible
+     * tiles are left in {@link #mVisibleTiles}, in request order. Call whenever the view changes
+     * */
+    private void syncTiles() {
+        final int zoom = mZoom;
+        final SweepMetric metric = mMetric;
+        final int width = getWidth(), height = getHeight();
+
+        final int maxTileX = (int) Math.floor(worldX(zoom, TIMES_FACTOR_MAX) / TILE_SIZE);
+        final int maxTileY = (int) Math.floor(worldY(zoom, POINTS_COUNT_MAX) / TILE_SIZE);
+        final int fromX = Math.max(0, (int) Math.floor(mOriginX / TILE_SIZE)), toX = Math.min(maxTileX, (int) Math.floor((mOriginX + width) / TILE_SIZE));
+        final int fromY = Math.max(0, (int) Math.floor(mOriginY / TILE_SIZE)), toY = Math.min(maxTileY, (int) Math.floor((mOriginY + height) / TILE_SIZE));
+
+        final ArrayList<TileKey> visible = mVisibleTiles;
+        visible.clear();
+        for (int ty = fromY; ty <= toY; ty++) {
+            for (int tx = fromX; tx <= toX; tx++) {
+                visible.add(new TileKey(zoom, metric, tx, ty));
+            }
+        }
+
+        final double cx = (mOriginX + width / 2.0) / TILE_SIZE - 0.5, cy = (mOriginY + height / 2.0) / TILE_SIZE - 0.5;
+        visible.sort(Comparator.comparingDouble(k -> (k.x - cx) * (k.x - cx) + (k.y - cy) * (k.y - cy)));
+
+        // cancel what scrolled away
+        final HashSet<TileKey> wanted = mVisibleTileSet;
+        wanted.clear();
+        wanted.addAll(visible);
+        final Iterator<Map.Entry<TileKey, TileTask>> it = mPending.entrySet().iterator();
+        while (it.hasNext()) {
+            final Map.Entry<TileKey, TileTask> entry = it.next();
+            if (!wanted.contains(entry.getKey())) {
+                entry.getValue().cancel();
+                it.remove();
+            }
+        }
+
+        if (isShowing()) {
+            for (TileKey key: visible) {
+                if (!mTiles.containsKey(key) && !mPending.containsKey(key)) {
+                    final TileTask task = new TileTask(key);
+                    mPending.put(key, task);
+                    try {
+                        task.future = mWorkers.submit(task);
+                    } catch (RejectedExecutionException e) {
+                        mPending.remove(key);       // disposed
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    protected void paintComponent(Graphics _g) {
+        final Graphics2D g = (Graphics2D) _g;
+        g.setColor(GlConfig.bg());
+        g.fillRect(0, 0, getWidth(), getHeight());
+
+        final int zoom = mZoom;
+        final ArrayList<TileKey> visible = mVisibleTiles;
+        for (int i=0, count = visible.size(); i < count; i++) {
+            final TileKey key = visible.get(i);
+            final int dx = (int) Math.round(key.x * (double) TILE_SIZE - mOriginX), dy = (int) Math.round(key.y * (double) TILE_SIZE - mOriginY);
+            final Tile tile = mTiles.get(key);
+            if (tile != null) {
+                g.drawImage(tile.image, dx, dy, null);
+                continue;
+            }
+
+            // placeholder: quarter of the coarser tile, scaled up
+            if (zoom < ZOOM_MAX) {
+                final Tile parent = mTiles.get(new TileKey(zoom + 1, key.metric, key.x >> 1, key.y >> 1));
+                if (parent != null) {
+                    final int sx = (key.x & 1) * (TILE_SIZE / 2), sy = (key.y & 1) * (TILE_SIZE / 2);
+                    g.drawImage(parent.image, dx, dy, dx + TILE_SIZE, dy + TILE_SIZE, sx, sy, sx + TILE_SIZE / 2, sy + TILE_SIZE / 2, null);
+                }
+            }
+        }
+
+        // current table
+        final int mx = (int) Math.round(worldX(zoom, mTarget.getTimesFactor()) - mOriginX), my = (int) Math.round(worldY(zoom, mTarget.getPointsCount()) - mOriginY);
+        g.setColor(GlConfig.fgDark());
+        g.drawLine(mx, 0, mx, getHeight());
+        g.drawLine(0, my, getWidth(), my);
+
+        // pending tiles
+        if (!mPending.isEmpty()) {
+            g.drawString(R.getHeatMapPendingText(mPending.size()), 8, getHeight() - 8);
+        }
+    }
+
+    @Nullable
+    @Override
+    public String getToolTipText(MouseEvent event) {
+        final long wx = (long) Math.floor(mOriginX + event.getX()), wy = (long) Math.floor(mOriginY + event.getY());
+        final int pointsCount = pointsCountAt(mZoom, wy);
+        final float timesFactor = timesFactorAt(mZoom, wx, mMetric);
+        if (pointsCount < 0 || Float.isNaN(timesFactor))
+            return null;
+
+        final Tile tile = mTiles.get(new TileKey(mZoom, mMetric, (int) Math.floorDiv(wx, TILE_SIZE), (int) Math.floorDiv(wy, TILE_SIZE)));
+        final float value = tile != null? tile.values[Math.floorMod(wy, TILE_SIZE) * TILE_SIZE + Math.floorMod(wx, TILE_SIZE)]: Float.NaN;
+        return R.getHeatMapCellText(pointsCount, timesFactor, mMetric, value);
+    }
+
+
+    private class MouseHandler extends MouseAdapter {
+
+        @Override
+        public void mousePressed(MouseEvent e) {
+            mDragStart = e.getPoint();
+            mDragStartOriginX = mOriginX;
+            mDragStartOriginY = mOriginY;
+            mDragged = false;
+        }
+
+        @Override
+        public void mouseDragged(MouseEvent e) {
+            final Point start = mDragStart;
+            if (start == null)
+                return;
+
+            mOriginX = mDragStartOriginX - (e.getX() - start.x);
+            mOriginY = mDragStartOriginY - (e.getY() - start.y);
+            mDragged = true;
+            syncTiles();
+            repaint();
+        }
+
+        @Override
+        public void mouseReleased(MouseEvent e) {
+            mDragStart = null;
+        }
+
+        @Override
+        public void mouseClicked(MouseEvent e) {
+            if (mDragged || e.getButton() != MouseEvent.BUTTON1)
+                return;
+
+            final long wx = (long) Math.floor(mOriginX + e.getX()), wy = (long) Math.floor(mOriginY + e.getY());
+            final int pointsCount = pointsCountAt(mZoom, wy);
+            final float timesFactor = timesFactorAt(mZoom, wx, mMetric);
+            if (pointsCount < 0 || Float.isNaN(timesFactor))
+                return;
+
+            mTarget.setPointsCount(pointsCount);
+            mTarget.setTimesFactor(timesFactor);
+            repaint();
+        }
+
+        @Override
+        public void mouseWheelMoved(MouseWheelEvent e) {
+            final int notches = (int) Math.signum(e.getPreciseWheelRotation());
+            if (notches != 0) {
+                setZoom(mZoom + notches, e.getPoint());
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package main.ui;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Picks a {@link RenderQuality} from measured frame times, so that frames fit a time budget.
+ *
+ * <p>
+ * Quality is lowered one level after {@link #OVER_BUDGET_FRAMES} consecutive frames over budget, and raised one level after enough
+ * consecutive frames under {@link #HEADROOM} of the budget. Raising again right after it caused a drop needs twice as many frames
+ * each time (up to {@link #UP_FRAMES_MAX}), so the level settles instead of oscillating around the budget
+ * <p>
+ * Thread-safe
+ */
+public class QualityGovernor {
+
+    public static final int OVER_BUDGET_FRAMES = 3;
+
+    /**
+     * Fraction of the budget frames must stay under before quality is raised
+     * */
+    public static final float HEADROOM = 0.5f;
+
+    public static final int UP_FRAMES_MIN = 30;
+    public static final int UP_FRAMES_MAX = 480;
+
+    private long mBudgetNanos;
+    @NotNull
+    private volatile RenderQuality mQuality = RenderQuality.FULL;
+
+    private int mOverBudgetFrames;
+    private int mUnderBudgetFrames;
+    private int mUpFramesRequired = UP_FRAMES_MIN;
+    private int mFramesSinceRaise = Integer.MAX_VALUE;
+    private boolean mSkipNext;
+
+    public QualityGovernor(long budgetNanos) {
+        mBudgetNanos = budgetNanos;
+    }
+
+    /**
+     * Current quality level. Lock-free
+     * */
+    @NotNull
+    public RenderQuality getQuality() {
+        return mQuality;
+    }
+
+    public synchronized long getBudgetNanos() {
+        return mBudgetNanos;
+    }
+
+    public synchronized void setBudgetNanos(long budgetNanos) {
+        if (mBudgetNanos != budgetNanos) {
+            mBudgetNanos = budgetNanos;
+            mOverBudgetFrames = mUnderBudgetFrames = 0;
+        }
+    }
+
+    /**
+     * Records the time taken by a frame drawn at the given quality
+     *
+     * @return whether the quality level changed
+     * */
+    public synchronized boolean onFrame(@NotNull RenderQuality quality, long frameNanos) {
+        if (quality != mQuality || mSkipNext) {
+            mSkipNext = false;     // drawn before the last change, or the first frame after it (cold buffers)
+            return false;
+        }
+
+        if (mFramesSinceRaise < Integer.MAX_VALUE) {
+            mFramesSinceRaise++;
+        }
+
+        if (frameNanos > mBudgetNanos) {
+            mUnderBudgetFrames = 0;
+            if (++mOverBudgetFrames >= OVER_BUDGET_FRAMES && quality != quality.lower()) {
+                if (mFramesSinceRaise <= mUpFramesRequired) {
+                    mUpFramesRequired = Math.min(UP_FRAMES_MAX, mUpFramesRequired * 2);      // raising did not fit, wait longer next time
+                }
+
+                setQuality(quality.lower());
+                return true;
+            }
+        } else {
+            mOverBudgetFrames = 0;
+            if (frameNanos < mBudgetNanos * HEADROOM) {
+                if (++mUnderBudgetFrames >= mUpFramesRequired && quality != quality.higher()) {
+                    setQuality(quality.higher());
+                    mFramesSinceRaise = 0;
+                    return true;
+                }
+            } else {
+                mUnderBudgetFrames = 0;
+            }
+        }
+
+        return false;
+    }
+
+    private void setQuality(@NotNull RenderQuality quality) {
+        mQuality = quality;
+        mOverBudgetFrames = mUnderBudgetFrames = 0;
+        mSkipNext = true;
+    }
+
+    /**
+     * Back to full quality, forgetting history
+     * */
+    public synchronized void reset() {
+        mQuality = RenderQuality.FULL;
+        mOverBudgetFrames = mUnderBudgetFrames = 0;
+        mUpFramesRequired = UP_FRAMES_MIN;
+        mFramesSinceRaise = Integer.MAX_VALUE;
+        mSkipNext = false;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "QualityGovernor{quality=" + mQuality + ", budget=" + mBudgetNanos / 1e6 + " ms, upFrames=" + mUpFramesRequired + "}";
+    }
+}
@@ -0,0 +1,81 @@
+package main.ui;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.Unmodifiable;
+
+/**
+ * Quality levels of a frame, from best to cheapest. Each level keeps the reductions of the previous ones
+ *
+ * @see QualityGovernor
+ */
+public enum RenderQuality {
+
+    FULL("Full", true, true, 1),
+
+    /**
+     * Antialiasing off (vector renderers only, raster renderers always antialias)
+     * */
+    NO_ANTIALIASING("No AA", false, true, 1),
+
+    /**
+     * Point dots skipped as well
+     * */
+    NO_POINTS("No Points", false, false, 1),
+
+    /**
+     * Every 2nd chord
+     * */
+    DECIMATE_2("1/2 Chords", false, false, 2),
+
+    /**
+     * Every 4th chord
+     * */
+    DECIMATE_4("1/4 Chords", false, false, 4);
+
+
+    @NotNull
+    public final String displayName;
+    public final boolean antialiasing;
+    public final boolean drawPoints;
+    /**
+     * Multiplier of the level of detail stride between drawn chords
+     * */
+    public final int chordStride;
+
+    RenderQuality(@NotNull String displayName, boolean antialiasing, boolean drawPoints, int chordStride) {
+        this.displayName = displayName;
+        this.antialiasing = antialiasing;
+        this.drawPoints = drawPoints;
+        this.chordStride = chordStride;
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+
+    @NotNull
+    public RenderQuality lower() {
+        final RenderQuality[] values = sharedValues();
+        return values[Math.min(values.length - 1, ordinal() + 1)];
+    }
+
+    @NotNull
+    public RenderQuality higher() {
+        return sharedValues()[Math.max(0, ordinal() - 1)];
+    }
+
+
+    @Nullable
+    @Unmodifiable
+    private static RenderQuality[] sValues;
+
+    public static RenderQuality[] sharedValues() {
+        if (sValues == null) {
+            sValues = values();
+        }
+
+        return sValues;
+    }
+}
@@ -6,21 +6,33 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.Unmodifiable;
 import main.util.Listeners;
+import main.math.ChordBuffer;
 import main.math.RMath;
+import main.util.FixedStepClock;
 import main.util.Size;
 import main.util.Ui;
-import main.math.Vector;
+import main.math.Viewport;
+import main.render.ChordRenderer;
+import main.render.RenderMode;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Ellipse2D;
-import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
 import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.Consumer;
-import java.util.function.IntFunction;
 
 public class TimesTablePanel extends JPanel {
 
@@ -86,6 +98,16 @@ public class TimesTablePanel extends JPanel {
         default void onScaleChanged(@NotNull TimesTablePanel panel, double scale) { }
 
         default void onDragChanged(@NotNull TimesTablePanel panel, @Nullable Size drag) { }
+
+        default void onRenderModeChanged(@NotNull TimesTablePanel panel, @NotNull RenderMode renderMode) { }
+
+        default void onActiveRenderingChanged(@NotNull TimesTablePanel panel, boolean activeRendering) { }
+
+        default void onBackgroundRenderingChanged(@NotNull TimesTablePanel panel, boolean backgroundRendering) { }
+
+        default void onAdaptiveQualityChanged(@NotNull TimesTablePanel panel, boolean adaptiveQuality) { }
+
+        default void onDynamicResolutionChanged(@NotNull TimesTablePanel panel, boolean dynamicResolution) { }
     }
 
 
@@ -97,6 +119,44 @@ public class TimesTablePanel extends JPanel {
     public static final boolean DEFAULT_TIMES_FACTOR_STICK_WHEN_INT_ENABLED = false;
     public static final long TIMES_FACTOR_STICK_WHEN_INT_DURATION_MS = 600;
 
+    /**
+     * Fixed simulation timestep. Sticking on integers is detected per step, as with the former 1 ms looper
+     * */
+    public static final long SIMULATION_STEP_NANOS = 1_000_000;
+
+    /**
+     * Longest stall caught up with by running missed steps, beyond which time is dropped
+     * */
+    public static final long SIMULATION_MAX_CATCH_UP_NANOS = 1_000_000_000;
+
+    public static final float STATUS_FONT_SIZE = 20;
+
+    /**
+     * User gestures during which frames are drawn as coarse previews ({@link #INTERACTION_PREVIEW_QUALITY}), and refined once they end
+     * */
+    public enum Interaction {
+        DRAG,
+        ZOOM,
+        SLIDER
+    }
+
+    @NotNull
+    public static final RenderQuality INTERACTION_PREVIEW_QUALITY = RenderQuality.DECIMATE_4;
+
+    /**
+     * Qualities stepped through after a gesture ends, one per presented frame
+     * */
+    @NotNull
+    private static final RenderQuality[] INTERACTION_REFINE_QUALITIES = { RenderQuality.NO_ANTIALIASING, RenderQuality.FULL };
+
+    /**
+     * Time after the last wheel event the zoom gesture is considered over
+     * */
+    public static final int ZOOM_SETTLE_MS = 150;
+
+    public static final int TARGET_FRAME_RATE_MIN = 1;
+    public static final int TARGET_FRAME_RATE_MAX = 480;
+
     public static final float TIMES_FACTOR_MIN = 1;
     public static final float TIMES_FACTOR_MAX = 500;
 
@@ -113,7 +173,7 @@ public class TimesTablePanel extends JPanel {
     }
 
     public static final int POINTS_COUNT_MIN = 10;
-    public static final int POINTS_COUNT_MAX = 400;
+    public static final int POINTS_COUNT_MAX = 1_000_000;
     public static final int POINTS_COUNT_DEFAULT = 200;
 
     public static final float TIMES_FACTOR_STEP_PER_MS_MIN = 0.0001f;
@@ -129,13 +189,24 @@ public class TimesTablePanel extends JPanel {
     }
 
 
+    /**
+     * Guards the simulation and view state. Setters may be called from any thread, and every change publishes a new
+     * {@link FrameState} snapshot ({@link #getFrameState()}), which drawing reads without locking
+     * */
+    @NotNull
+    private final Object mLock = new Object();
+
     private float mTimesFactor = getTimesFactorStart();
     private float mTimesFactorStepPerMs = TIMES_FACTOR_STEP_PER_MS_DEFAULT;
     @Nullable
     private Float mPendingStartTimesFactor;
-    private long mLastMainLoopTimeStamp = -1;
+    private long mLastMainLoopTimeNanos = -1;       // simulation time of the last step, -1 to (re)start
+    private long mSimulationTimeNanos;
     @Nullable
-    private Long mLastStickTimeStamp;
+    private Long mLastStickTimeNanos;
+    /* times factor before and after the last step, for interpolation */
+    private float mStepFromTimesFactor;
+    private float mStepToTimesFactor;
 
 
     private int mPointsCount = POINTS_COUNT_DEFAULT;
@@ -144,8 +215,49 @@ public class TimesTablePanel extends JPanel {
     @NotNull
     private EndBehaviour mEndBehaviour = DEFAULT_END_BEHAVIOUR;
 
+    /* Simulation thread, alive while playing */
+    @Nullable
+    private Thread mSimulationThread;
+    private volatile int mTargetFrameRate = GlConfig.DEFAULT_TARGET_FRAME_RATE;
+
+    /* Adaptive quality, while playing */
+    private volatile boolean mAdaptiveQuality = GlConfig.DEFAULT_ADAPTIVE_QUALITY;
+    @NotNull
+    private final QualityGovernor mQualityGovernor = new QualityGovernor(1_000_000_000L / GlConfig.DEFAULT_TARGET_FRAME_RATE);
+
+    /* Dynamic resolution, while playing */
+    private volatile boolean mDynamicResolution = GlConfig.DEFAULT_DYNAMIC_RESOLUTION;
     @NotNull
-    private final Timer mLooper;
+    private final DynamicResolution mDynamicResolutionScaler = new DynamicResolution(1_000_000_000L / GlConfig.DEFAULT_TARGET_FRAME_RATE);
+
+    /* Progressive refinement of gestures, UI thread */
+    @NotNull
+    private final EnumSet<Interaction> mInteractions = EnumSet.noneOf(Interaction.class);
+    @NotNull
+    private volatile RenderQuality mInteractionQuality = RenderQuality.FULL;
+    @Nullable
+    private Timer mZoomSettleTimer;
+
+    /* Visibility: while not displayed (hidden, or window iconified), the simulation ticks at GlConfig.HIDDEN_FRAME_RATE and nothing is rendered */
+    private volatile boolean mDisplayed = true;
+    @Nullable
+    private Window mWindow;
+    private boolean mIconified;
+    @NotNull
+    private final WindowAdapter mWindowListener = new WindowAdapter() {
+        @Override
+        public void windowIconified(WindowEvent e) {
+            mIconified = true;
+            updateDisplayed();
+        }
+
+        @Override
+        public void windowDeiconified(WindowEvent e) {
+            mIconified = false;
+            updateDisplayed();
+        }
+    };
+
     @NotNull
     private final Listeners<Listener> mListeners;
 
@@ -156,14 +268,74 @@ public class TimesTablePanel extends JPanel {
     private double mScale = 1;
     @Nullable
     private Size mDrag;
+    private int mWidth;
+    private int mHeight;
+
+    @NotNull
+    private final AtomicReference<FrameState> mFrameState = new AtomicReference<>();
+    @NotNull
+    private final AtomicBoolean mFramePosted = new AtomicBoolean();
+
     @NotNull
     private final MouseHandler mMouseHandler = new MouseHandler();
     @NotNull
     private final ComponentListener mComponentListener = new ComponentListener();
 
-    public TimesTablePanel() {
-        mLooper = Ui.createLooper(this::mainLoop);
+    @NotNull
+    private RenderMode mRenderMode = GlConfig.DEFAULT_RENDER_MODE;
+
+    /* Drawing context of the UI thread, and cache of rendered frames */
+    @NotNull
+    private final FrameRenderer mFrameRenderer = new FrameRenderer();
+    @NotNull
+    private final FrameCache mFrameCache = new FrameCache(GlConfig.DEFAULT_FRAME_CACHE_BUDGET_BYTES);
+    @Nullable
+    private FrameState mLastDrawnKey;
+    @Nullable
+    private BufferedImage mLastDrawnImage;
+    @Nullable
+    private BufferedImage mUncachedImage;          // frames drawn here that bypass the cache, while playing
+
+    /* Pan and zoom by transforming the last drawn frame, UI thread */
+    private boolean mTransformFastPath = GlConfig.DEFAULT_TRANSFORM_FAST_PATH;
+    private boolean mCrispFrameDue;
+    @Nullable
+    private Timer mTransformSettleTimer;
+    @NotNull
+    private final AffineTransform mBlitTransform = new AffineTransform();
+
+    /* Prefetch of neighbouring frames while paused */
+    @Nullable
+    private ExecutorService mPrefetchExecutor;
+    @Nullable
+    private FrameRenderer mPrefetchRenderer;        // owned by the prefetch thread
+    @NotNull
+    private final AtomicInteger mPrefetchGeneration = new AtomicInteger();
+    @Nullable
+    private FrameState mLastPrefetchCenter;
 
+    /* Background rendering: frames are drawn by the render thread into a triple buffer, and the UI thread only blits the latest one */
+    private volatile boolean mBackgroundRendering;
+    @NotNull
+    private final TripleBuffer mTripleBuffer = new TripleBuffer();
+    @NotNull
+    private final AtomicReference<FrameState> mRenderRequest = new AtomicReference<>();
+    @Nullable
+    private Thread mRenderThread;       // guarded by mRenderRequest
+    @Nullable
+    private volatile Font mRenderFont;
+    @Nullable
+    private volatile FrameState mLastRequestedKey;
+
+    /* Active rendering. Playback frames are presented from the simulation or render thread, see directPresentCanvas() */
+    private volatile boolean mActiveRendering;
+    private boolean mPageFlippingPreferred;
+    @Nullable
+    private volatile ActiveRenderCanvas mActiveCanvas;
+    @NotNull
+    private final Consumer<Graphics2D> mActivePainter = this::paintFrame;
+
+    public TimesTablePanel() {
         mListeners = new Listeners<>();
         mListeners.setSafeIterationEnabled(false);
 
@@ -173,10 +345,19 @@ public class TimesTablePanel extends JPanel {
         addMouseMotionListener(mMouseHandler);
         addMouseListener(mMouseHandler);
         addComponentListener(mComponentListener);
+        addHierarchyListener(e -> {
+            if ((e.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) != 0) {
+                updateDisplayed();
+            }
+        });
+
+        setLayout(new BorderLayout());
+        setActiveRenderingInternal(GlConfig.DEFAULT_ACTIVE_RENDERING);
+        mBackgroundRendering = GlConfig.DEFAULT_BACKGROUND_RENDERING;
     }
 
     public void updateTheme() {
-        setBackground(GlConfig.bg());
+        Ui.considerPost(() -> setBackground(GlConfig.bg()));
         update();
     }
 
@@ -188,165 +369,1007 @@ public class TimesTablePanel extends JPanel {
         return 1.4f;
     }
 
-//    @NotNull
-//    protected Vector createVector(float index, int count, float mag) {
-//        return Vector.fromAngle(U.map(index, 0, count, 0, U.TWO_PI)).mult(mag);
-//    }
+    /**
+     * Level of detail: when points are packed denser than {@link GlConfig#LOD_CHORDS_PER_PIXEL} per pixel of circumference,
+     * only every n-th chord (and point) is drawn, so that frame cost is bounded by output pixels rather than the point count
+     *
+     * @return stride between drawn chords, 1 to draw all
+     * */
+    protected int getLevelOfDetailStride(int pointsCount, float circleRadius, double scale) {
+        final double circumference = RMath.TWO_PI * circleRadius * Math.abs(scale);
+        final double maxChords = RMath.constraint(1, GlConfig.LOD_MAX_CHORDS, circumference * GlConfig.LOD_CHORDS_PER_PIXEL);
+        return Math.max(1, (int) Math.ceil(pointsCount / maxChords));
+    }
+
+
+    /**
+     * Draws frames from a {@link FrameState}. Holds geometry and renderer buffers that are reused across frames, so it is not thread-safe:
+     * each drawing thread owns one
+     * */
+    protected class FrameRenderer {
+
+        @NotNull
+        private final ChordBuffer mChordBuffer = new ChordBuffer();
+        @NotNull
+        private final Ellipse2D.Float mEllipse = new Ellipse2D.Float();
+        @NotNull
+        private final Ellipse2D.Double mCircle = new Ellipse2D.Double();
+        @NotNull
+        private final Path2D.Double mCircleArc = new Path2D.Double();
+        @NotNull
+        private final Viewport mViewport = new Viewport();
+        @NotNull
+        private final AffineTransform mViewTransform = new AffineTransform();
+        @NotNull
+        private final EnumMap<RenderMode, ChordRenderer> mRenderers = new EnumMap<>(RenderMode.class);
+        @Nullable
+        private Font mStatusFontBase;
+        @Nullable
+        private Font mStatusFont;
+        private float mStatusFontSize;
+        @Nullable
+        private String mStatusText;
+        private float mStatusTextTimesFactor;
+        @Nullable
+        private RenderQuality mStatusTextQuality;
+
+        @NotNull
+        public final ChordRenderer getRenderer(@NotNull RenderMode renderMode) {
+            ChordRenderer renderer = mRenderers.get(renderMode);
+            if (renderer == null) {
+                renderer = renderMode.createRenderer();
+                mRenderers.put(renderMode, renderer);
+            }
+
+            return renderer;
+        }
+
+        @NotNull
+        private Font getStatusFont(@NotNull Font base, float size) {
+            if (mStatusFont == null || mStatusFontBase != base || mStatusFontSize != size) {
+                mStatusFontBase = base;
+                mStatusFontSize = size;
+                mStatusFont = base.deriveFont(size);
+            }
+
+            return mStatusFont;
+        }
+
+        @Nullable
+        private String getStatusText(float timesFactor, @NotNull RenderQuality quality) {
+            if (mStatusText == null || mStatusTextTimesFactor != timesFactor || mStatusTextQuality != quality) {
+                mStatusTextTimesFactor = timesFactor;
+                mStatusTextQuality = quality;
+                mStatusText = R.getStatusText(timesFactor, quality);
+            }
+
+            return mStatusText;
+        }
+
+        /**
+         * Samples the part of the circle outline within the viewport, in double precision and relative to the geometry origin like the points.
+         * A full {@link Ellipse2D} is flattened by Java2D with a radial error of about {@code 2.7e-4 * radius}, thousands of pixels at deep zoom
+         * */
+        @NotNull
+        private Path2D.Double visibleCircleArc(double radius, @NotNull Viewport viewport, double scale, double originX, double originY) {
+            final Path2D.Double arc = mCircleArc;
+            arc.reset();
+
+            // arc within reach of the viewport: |P(theta) - C| <= reach
+            final double cx = viewport.centerX(), cy = viewport.centerY();
+            final double rho = Math.hypot(cx, cy), reach = Math.hypot(viewport.halfWidth(), viewport.halfHeight());
+            final double cosMin = rho == 0? -1: (radius * radius + rho * rho - reach * reach) / (2 * radius * rho);
+            if (cosMin > 1)
+                return arc;
+
+            final double halfExtent = cosMin <= -1? Math.PI: Math.acos(cosMin);
+            final double start = Math.atan2(cy, cx) - halfExtent;
+
+            // chord sagitta r * step^2 / 8 within CIRCLE_ARC_TOLERANCE_PX
+            final double step = Math.sqrt(8 * GlConfig.CIRCLE_ARC_TOLERANCE_PX / (radius * scale));
+            final int segments = (int) RMath.constraint(8, GlConfig.CIRCLE_ARC_SEGMENTS_MAX, Math.ceil(2 * halfExtent / step));
+            for (int i=0; i <= segments; i++) {
+                final double theta = start + 2 * halfExtent * i / segments;
+                final double x = radius * Math.cos(theta) - originX, y = radius * Math.sin(theta) - originY;
+                if (i == 0) {
+                    arc.moveTo(x, y);
+                } else {
+                    arc.lineTo(x, y);
+                }
+            }
+
+            return arc;
+        }
+
+        /**
+         * Draws the frame into a target of {@link FrameState#renderWidth()} x {@link FrameState#renderHeight()}
+         * */
+        public void draw(@NotNull Graphics2D g, @NotNull FrameState state) {
+            final float res = state.resolutionScale;
+            final int width = state.renderWidth(), height = state.renderHeight();
+            final float timesFactor = state.timesFactor;
+            final int pointsCount = state.pointsCount;
+
+            // BG
+//            g.setColor(main.ui.GlConfig.bg());
+//            g.fillRect(0, 0, width, height);
+
+            // 1. Status
+            final String statusText = getStatusText(timesFactor, state.quality);
+            if (!(statusText == null || statusText.isEmpty())) {
+                g.setColor(GlConfig.fgDark());
+                g.setFont(getStatusFont(g.getFont(), STATUS_FONT_SIZE * res));
+                g.drawString(statusText, 20 * res, height - 20 * res);
+            }
+
+            /* ..........................  Pre-Transforms ...........................*/
+
+            // 1. Translate
+            final double tx = width / 2.0 + state.dragX * res, ty = height / 2.0 + state.dragY * res;
+
+            // 2. Scale
+            final double scale = state.scale;
+            final double sx = (state.invertX? -1: 1) * scale, sy = (state.invertY? -1: 1) * scale;
+
+            // Visible region, in coordinates centered at the circle center
+            final float circleRadius = getCircleRadius(width, height);
+            final double margin = GlConfig.VIEWPORT_CULL_MARGIN_PX / scale;
+            final Viewport viewport = mViewport;
+            viewport.set((width / 2.0 - tx) / sx, (height / 2.0 - ty) / sy, width / 2.0 / scale + margin, height / 2.0 / scale + margin);
+
+            // Geometry, clipped to the view and relative to its center when zoomed in
+            final ChordBuffer geometry = mChordBuffer;
+            final int stride = getLevelOfDetailStride(pointsCount, circleRadius, scale) * state.quality.chordStride;
+            geometry.compute(pointsCount, timesFactor, circleRadius, stride, viewport);
+
+            final double ox = geometry.originX(), oy = geometry.originY();
+            final AffineTransform view = mViewTransform;
+            view.setToTranslation(tx + sx * ox, ty + sy * oy);
+            view.scale(sx, sy);
+
+            final AffineTransform base = g.getTransform();
+            g.transform(view);
+
+
+            /* ........................... Main Drawing ............................... */
+
+            // Circle
+            if (state.drawCircle && viewport.intersectsCircleOutline(circleRadius, margin)) {
+                g.setColor(GlConfig.circleColor(timesFactor));
+                if (geometry.culled()) {
+                    g.draw(visibleCircleArc(circleRadius, viewport, scale, ox, oy));
+                } else {
+                    mCircle.setFrame(-circleRadius - ox, -circleRadius - oy, circleRadius * 2.0, circleRadius * 2.0);
+                    g.draw(mCircle);
+                }
+            }
+
+            // Points
+            if (state.drawPoints && state.quality.drawPoints) {
+                final float pointRadius = getPointRadius(circleRadius, pointsCount) * res, pointDia = pointRadius * 2;
+                final float[] px = geometry.pointsX(), py = geometry.pointsY();
+                final boolean culled = geometry.culled();
+
+                g.setColor(GlConfig.pointColor(timesFactor));
+                for (int i=0, samples = geometry.sampleCount(); i < samples; i++) {
+                    if (culled && !viewport.containsPoint(px[i], py[i], pointRadius))
+                        continue;
+
+                    mEllipse.setFrame(px[i] - pointRadius, py[i] - pointRadius, pointDia, pointDia);
+                    g.fill(mEllipse);
+                }
+            }
+
+            // Lines
+            g.setTransform(base);
+            getRenderer(state.renderMode).render(g, geometry, view, width, height, timesFactor);
+        }
+    }
+
+
+    private void publishFrameState() {
+        synchronized (mLock) {
+            publishFrameState(mTimesFactor);
+        }
+    }
+
+    private void publishFrameState(float timesFactor) {
+        synchronized (mLock) {
+            final Size drag = mDrag;
+            RenderQuality quality = mAdaptiveQuality && mSimulationThread != null? mQualityGovernor.getQuality(): RenderQuality.FULL;
+            final RenderQuality interactionQuality = mInteractionQuality;
+            if (interactionQuality.ordinal() > quality.ordinal()) {
+                quality = interactionQuality;
+            }
+
+            mFrameState.set(new FrameState(timesFactor, mPointsCount,
+                    mWidth, mHeight,
+                    mScale, drag != null? drag.width: 0, drag != null? drag.height: 0, mInvertX, mInvertY,
+                    mDrawCircle, mDrawPoints,
+                    GlConfig.isDarkMode(), GlConfig.getPatternColorMode(), mRenderMode,
+                    quality,
+                    mDynamicResolution && mSimulationThread != null? mDynamicResolutionScaler.getScale(): 1,
+                    mSimulationThread != null));
+        }
+    }
+
+    /**
+     * @return latest published snapshot of the state, which determines the frame completely. Lock-free
+     * */
+    @NotNull
+    public final FrameState getFrameState() {
+        FrameState state = mFrameState.get();
+        if (state == null) {
+            publishFrameState();
+            state = mFrameState.get();
+        }
+
+        return state;
+    }
+
+    private void syncSize() {
+        synchronized (mLock) {
+            mWidth = getWidth();
+            mHeight = getHeight();
+            publishFrameState();
+        }
+    }
+
+    /**
+     * @return key a frame is cached under, with the times factor quantized to {@link GlConfig#FRAME_CACHE_TIMES_FACTOR_QUANTUM}.
+     * Frames themselves are always drawn at the exact times factor of their state
+     * */
+    @NotNull
+    protected static FrameState cacheKey(@NotNull FrameState state) {
+        return state.withTimesFactor(FrameCache.quantize(state.timesFactor, GlConfig.FRAME_CACHE_TIMES_FACTOR_QUANTUM));
+    }
+
+    /**
+     * The frame cache is only used while paused or scrubbing, where values repeat. Frames of playback are drawn once and not looked up
+     * */
+    private boolean isFrameCacheActive(@NotNull FrameState key) {
+        return !key.playing || mInteractions.contains(Interaction.SLIDER);
+    }
+
+    /**
+     * @return key of the frame to show for the current state. A reduced quality frame is replaced by the full one if that is cached
+     * */
+    @NotNull
+    private FrameState displayKey() {
+        final FrameState key = getFrameState();
+        final FrameState full = key.withFullQuality();
+        return full != key && isFrameCacheActive(key) && mFrameCache.contains(cacheKey(full))? full: key;
+    }
+
+    /**
+     * @return whether the last drawn frame is still up-to-date. A frame of playback is drawn again once paused, so that it gets cached
+     * */
+    public final boolean isFrameCurrent() {
+        final FrameState key = displayKey(), drawn = mLastDrawnKey;
+        return key.equals(drawn) && key.playing == drawn.playing;
+    }
+
+    @NotNull
+    public final FrameCache getFrameCache() {
+        return mFrameCache;
+    }
+
+    /**
+     * Draws a frame into an image of {@link FrameState#renderWidth()} x {@link FrameState#renderHeight()}. Frames of a reduced
+     * {@link FrameState#resolutionScale} stay small in the triple buffer and the cache, and are scaled up only when presented (see {@link #drawFrame})
+     *
+     * @return time taken, in nanoseconds
+     * */
+    private long renderFrame(@NotNull FrameRenderer renderer, @NotNull FrameState state, @NotNull BufferedImage image, @Nullable Font font) {
+        final long start = System.nanoTime();
+        final Graphics2D g = image.createGraphics();
+        try {
+            g.setColor(GlConfig.bg());
+            g.fillRect(0, 0, state.renderWidth(), state.renderHeight());
+            if (font != null) {
+                g.setFont(font);
+            }
+
+            if (GlConfig.FORCE_ANTIALIASING && state.quality.antialiasing) {
+                g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            }
+
+            renderer.draw(g, state);
+        } finally {
+            g.dispose();
+        }
+
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Feeds the time of a frame drawn for display to the resolution scaler and quality governor. Resolution is lowered first and raised last:
+     * the governor only takes over once resolution is at its minimum, and gives back to the scaler once at full quality
+     * */
+    private void onFrameRendered(@NotNull FrameState key, long frameNanos) {
+        if (!key.playing)
+            return;
+
+        final boolean changed;
+        if (mDynamicResolution && key.quality == RenderQuality.FULL && !(mDynamicResolutionScaler.isMinimum() && frameNanos > mDynamicResolutionScaler.getBudgetNanos())) {
+            changed = mDynamicResolutionScaler.onFrame(key.resolutionScale, frameNanos);
+        } else {
+            changed = mAdaptiveQuality && mQualityGovernor.onFrame(key.quality, frameNanos);
+        }
+
+        if (changed) {
+            update();
+        }
+    }
+
+    /**
+     * Paints the current frame, from the frame cache if possible. On a miss, the frame is either drawn here into an image which is then cached,
+     * or with background rendering, requested from the render thread while the latest completed frame is shown
+     * */
+    private void paintFrame(@NotNull Graphics2D g) {
+        if (getFrameState().width != getWidth() || getFrameState().height != getHeight()) {
+            syncSize();
+        }
+
+        mRenderFont = getFont();        // for the threads drawing frames
 
+        final FrameState key = displayKey();
+        if (key.width <= 0 || key.height <= 0)
+            return;
+
+        final boolean cacheActive = isFrameCacheActive(key);
+        FrameState drawnKey = key;
+        BufferedImage frame = cacheActive? mFrameCache.get(cacheKey(key)): key.equals(mLastDrawnKey)? mLastDrawnImage: null;
+        if (frame == null) {
+            final FrameState lastKey = mLastDrawnKey;
+            if (isTransformFastPathApplicable(key) && !mCrispFrameDue && mLastDrawnImage != null && lastKey != null && lastKey.isViewOf(key)) {
+                // only pan or zoom changed
+                frame = mLastDrawnImage;
+                drawnKey = lastKey;
+                scheduleCrispFrame();
+            } else if (mBackgroundRendering) {
+                final TripleBuffer.Frame front = mTripleBuffer.acquireFront();
+                frame = front.image();
+                drawnKey = front.key();
+                if (!key.equals(drawnKey)) {
+                    requestBackgroundFrame(key);
+                }
+
+                if (frame == null)
+                    return;     // first frame not ready yet
+            } else {
+                if (cacheActive) {
+                    frame = mFrameCache.obtainImage(key.renderWidth(), key.renderHeight());
+                } else {
+                    frame = mUncachedImage;
+                    if (frame == null || frame.getWidth() != key.renderWidth() || frame.getHeight() != key.renderHeight()) {
+                        frame = mUncachedImage = new BufferedImage(key.renderWidth(), key.renderHeight(), BufferedImage.TYPE_INT_RGB);
+                    }
+                }
+
+                final long nanos = renderFrame(mFrameRenderer, key, frame, getFont());
+                if (cacheActive) {
+                    mFrameCache.put(cacheKey(key), frame, true);
+                }
+
+                onFrameRendered(key, nanos);
+            }
+        }
+
+        if (drawnKey.equals(key) || !drawnKey.isViewOf(key)) {
+            drawFrame(g, frame, drawnKey.width, drawnKey.height);
+            if (drawnKey.equals(key)) {
+                mCrispFrameDue = false;
+            }
+        } else {
+            drawTransformed(g, frame, drawnKey, key);
+        }
+
+        mLastDrawnKey = drawnKey;
+        mLastDrawnImage = frame;
+
+        drawPresentStats(g, mFrameRenderer, getFont());
+        refineInteractionIfShown(drawnKey);
+
+        // not for views passed through while panning or zooming
+        if (!key.playing && key.quality == RenderQuality.FULL && drawnKey.equals(key) && !isTransformSettling()) {
+            schedulePrefetch(key);
+        }
+    }
+
+    /**
+     * Overlay of active rendering, not part of the frame
+     * */
+    private void drawPresentStats(@NotNull Graphics2D g, @NotNull FrameRenderer renderer, @Nullable Font font) {
+        final ActiveRenderCanvas canvas = mActiveCanvas;
+        if (canvas != null && canvas.getFramesPresented() > 0 && font != null) {
+            g.setColor(GlConfig.fgDark());
+            g.setFont(renderer.getStatusFont(font, STATUS_FONT_SIZE));
+            g.drawString(R.getPresentStatsText(canvas.getPresentLatencyMs(), canvas.isPageFlipping()), 20, 40);
+        }
+    }
+
+    /**
+     * Moves gesture previews to the next refinement level once the current one has been shown. UI thread
+     * */
+    private void refineInteractionIfShown(@NotNull FrameState shown) {
+        if (mInteractions.isEmpty() && shown.quality.ordinal() <= mInteractionQuality.ordinal()) {
+            refineInteraction();
+        }
+    }
+
+    /**
+     * Presents a frame image at the given size. Images of a reduced resolution are scaled up with bilinear filtering here, onto the screen
+     * or back buffer, where scaling is accelerated
+     * */
+    private static void drawFrame(@NotNull Graphics2D g, @NotNull BufferedImage frame, int width, int height) {
+        if (frame.getWidth() == width && frame.getHeight() == height) {
+            g.drawImage(frame, 0, 0, null);
+            return;
+        }
+
+        final Object interpolation = g.getRenderingHint(RenderingHints.KEY_INTERPOLATION);
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(frame, 0, 0, width, height, null);
+        if (interpolation != null) {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, interpolation);
+        }
+    }
+
+    /**
+     * Draws a frame image as seen with the view transform of another state
+     * */
+    private void drawTransformed(@NotNull Graphics2D g, @NotNull BufferedImage frame, @NotNull FrameState from, @NotNull FrameState to) {
+        final double cx = from.width / 2.0, cy = from.height / 2.0;
+        final double k = to.scale / from.scale;
+
+        final AffineTransform t = mBlitTransform;
+        t.setToTranslation(cx + to.dragX, cy + to.dragY);
+        t.scale(k, k);
+        t.translate(-(cx + from.dragX), -(cy + from.dragY));
+        t.scale(from.width / (double) frame.getWidth(), from.height / (double) frame.getHeight());        // reduced resolution frames
+
+        g.setColor(GlConfig.bg());
+        g.fillRect(0, 0, to.width, to.height);
+
+        final Object interpolation = g.getRenderingHint(RenderingHints.KEY_INTERPOLATION);
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(frame, t, null);
+        if (interpolation != null) {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, interpolation);
+        }
+    }
+
+    /**
+     * (Re)starts the wait for pan and zoom to settle, after which the current state is drawn for real
+     * */
+    private void scheduleCrispFrame() {
+        if (mTransformSettleTimer == null) {
+            mTransformSettleTimer = new Timer(GlConfig.TRANSFORM_SETTLE_MS, e -> {
+                mCrispFrameDue = true;
+                if (!isFrameCurrent()) {
+                    requestFrame();
+                }
+            });
+
+            mTransformSettleTimer.setRepeats(false);
+        }
+
+        mTransformSettleTimer.restart();
+    }
+
+    /**
+     * Pan and zoom fast path: while only the view transform changes, the last drawn frame is transformed instead of drawing new ones.
+     * A frame of the current state is drawn once the transform has been stable for {@link GlConfig#TRANSFORM_SETTLE_MS}
+     * */
+    public final void setTransformFastPathEnabled(boolean enabled) {
+        Ui.considerPost(() -> {
+            mTransformFastPath = enabled;
+            mCrispFrameDue = false;
+            update();
+        });
+    }
+
+    public final boolean isTransformFastPathEnabled() {
+        return mTransformFastPath;
+    }
+
+    /**
+     * @return whether pan and zoom are currently drawn by transforming the last frame. Not while playing, where every frame has a new
+     * times factor anyway, so gestures fall back to coarse previews
+     *
+     * @param state the state being drawn, or the latest published one
+     * */
+    private boolean isTransformFastPathApplicable(@NotNull FrameState state) {
+        return mTransformFastPath && !state.playing;
+    }
+
+    /**
+     * @return whether the view is being panned or zoomed through the fast path, and has not settled yet
+     * */
+    private boolean isTransformSettling() {
+        return (mTransformSettleTimer != null && mTransformSettleTimer.isRunning()) || mCrispFrameDue;
+    }
+
+    @Override
+    protected void paintComponent(Graphics _g) {
+        super.paintComponent(_g);
+        if (mActiveCanvas != null)
+            return;     // covered by the active canvas
+
+        paintFrame((Graphics2D) _g);
+    }
+
+
+    /* Background Rendering */
+
+    private void requestBackgroundFrame(@NotNull FrameState key) {
+        if (!key.equals(mLastRequestedKey)) {
+            submitRenderRequest(key);
+        }
+    }
+
+    /**
+     * Asks the render thread for a frame, starting it if needed. Any thread
+     * */
+    private void submitRenderRequest(@NotNull FrameState key) {
+        mLastRequestedKey = key;
+        mRenderRequest.set(key);        // replaces a request not yet taken
+
+        final Thread thread;
+        synchronized (mRenderRequest) {
+            if (mRenderThread == null) {
+                final Thread render = new Thread(this::renderLoop, TAG + "-Render");
+                render.setDaemon(true);
+                mRenderThread = render;
+                render.start();
+                return;
+            }
+
+            thread = mRenderThread;
+        }
+
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Draws the latest requested frame into the triple buffer, and presents it: directly during active rendered playback, otherwise
+     * through the UI thread. Runs on the render thread
+     * */
+    private void renderLoop() {
+        final FrameRenderer renderer = new FrameRenderer();
+        final DirectPresenter presenter = new DirectPresenter(renderer, true);
+
+        while (true) {
+            final FrameState key = mRenderRequest.getAndSet(null);
+            if (key == null) {
+                LockSupport.park(this);
+                continue;
+            }
+
+            final BufferedImage image = mTripleBuffer.obtainBack(key.renderWidth(), key.renderHeight());
+            onFrameRendered(key, renderFrame(renderer, key, image, mRenderFont));
+
+            if (!key.playing && key.quality == RenderQuality.FULL) {
+                // scrubbing may come back to this frame
+                final BufferedImage copy = mFrameCache.obtainImage(key.renderWidth(), key.renderHeight());
+                image.copyData(copy.getRaster());
+                mFrameCache.put(cacheKey(key), copy, false);
+            }
+
+            mTripleBuffer.publish(image, key);
+            final ActiveRenderCanvas canvas = directPresentCanvas(key);
+            if (canvas == null || !presenter.present(canvas)) {
+                postFrameRequest();
+            }
+        }
+    }
+
+    /**
+     * Frames drawn by the render thread so far. Frames published but replaced before the UI thread could show them are counted as dropped
+     * */
     @NotNull
-    protected Vector createVector(float index, float unitTheta, float mag) {
-        return Vector.fromAngle(index * unitTheta + RMath.PI).mult(mag);
+    public final TripleBuffer getTripleBuffer() {
+        return mTripleBuffer;
+    }
+
+
+    /* Prefetch */
+
+    private void schedulePrefetch(@NotNull FrameState center) {
+        if (GlConfig.FRAME_CACHE_PREFETCH_RADIUS <= 0 || center.equals(mLastPrefetchCenter))
+            return;
+
+        mLastPrefetchCenter = center;
+        final int generation = mPrefetchGeneration.incrementAndGet();
+        final Font font = getFont();
+
+        if (mPrefetchExecutor == null) {
+            mPrefetchExecutor = Executors.newSingleThreadExecutor(r -> {
+                final Thread thread = new Thread(r, TAG + "-Prefetch");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            });
+        }
+
+        mPrefetchExecutor.execute(() -> prefetch(center, generation, font));
+    }
+
+    private void cancelPrefetch() {
+        mPrefetchGeneration.incrementAndGet();
+        Ui.considerPost(() -> mLastPrefetchCenter = null);
+    }
+
+    /**
+     * Renders frames of the slider values around the given frame into the cache, nearest first. Runs on the prefetch thread,
+     * and stops as soon as another prefetch is scheduled or cancelled
+     * */
+    private void prefetch(@NotNull FrameState center, int generation, @Nullable Font font) {
+        if (mPrefetchRenderer == null) {
+            mPrefetchRenderer = new FrameRenderer();
+        }
+
+        final int value = Math.round(center.timesFactor);
+        for (int i=0; i <= GlConfig.FRAME_CACHE_PREFETCH_RADIUS * 2; i++) {
+            if (generation != mPrefetchGeneration.get())
+                return;
+
+            final int offset = ((i + 1) / 2) * (i % 2 == 0? -1: 1);       // 0, 1, -1, 2, -2 ...
+            final float timesFactor = value + offset;
+            if (timesFactor < TIMES_FACTOR_MIN || timesFactor > TIMES_FACTOR_MAX)
+                continue;
+
+            final FrameState key = center.withTimesFactor(timesFactor);
+            if (mFrameCache.contains(cacheKey(key)))
+                continue;
+
+            final BufferedImage image = mFrameCache.obtainImage(key.renderWidth(), key.renderHeight());
+            renderFrame(mPrefetchRenderer, key, image, font);
+
+            // Theme is global, and may have changed while drawing
+            if (generation != mPrefetchGeneration.get() || GlConfig.isDarkMode() != key.darkMode || GlConfig.getPatternColorMode() != key.patternColorMode) {
+                mFrameCache.release(image);
+                return;
+            }
+
+            mFrameCache.put(cacheKey(key), image, false);
+        }
+    }
+
+
+    /**
+     * Advances the simulation by one fixed step. Runs on the simulation thread, with the state lock held
+     *
+     * @param stepNanos duration of the step. Ignored when (re)starting, which only sets the start times factor
+     * */
+    protected void mainLoop(long stepNanos) {
+        final float from = mTimesFactor;
+        boolean jump = false;
+
+        if (mLastMainLoopTimeNanos != -1) {
+            mSimulationTimeNanos += stepNanos;
+            final long cTimeNanos = mSimulationTimeNanos;
+            final Long lastStickNanos = mLastStickTimeNanos;
+            boolean sticked = mTimesFactorStickOnIntEnabled && lastStickNanos != null && (cTimeNanos - lastStickNanos) < TIMES_FACTOR_STICK_WHEN_INT_DURATION_MS * 1_000_000L;
+
+            if (!sticked) {
+                final boolean inc = mTimesFactorStepPerMs > 0;
+                final float step = mTimesFactorStepPerMs * (stepNanos / 1e6f);
+                if (mTimesFactorStickOnIntEnabled) {
+                    float nextStop;
+                    if (RMath.isInt(mTimesFactor)) {
+                        nextStop = (mTimesFactor + (inc? 1: -1));
+                    } else {
+                        nextStop = (float) (inc? Math.ceil(mTimesFactor): Math.floor(mTimesFactor));
+                    }
+
+                    if (Math.abs(nextStop - mTimesFactor) <= Math.abs(step)) {
+                        mTimesFactor = nextStop;
+                        sticked = true;
+                    }
+                }
+
+                if (sticked) {
+                    mLastStickTimeNanos = cTimeNanos;
+                }  else {
+                    mTimesFactor += step;
+                    mLastStickTimeNanos = null;
+                }
+
+                if (inc? mTimesFactor >= TIMES_FACTOR_MAX: mTimesFactor <= TIMES_FACTOR_MIN) {        // DONE
+                    mTimesFactor = RMath.constraint(mTimesFactor, TIMES_FACTOR_MIN, TIMES_FACTOR_MAX);
+
+                    switch (mEndBehaviour) {
+                        case PAUSE -> setPlay(false);
+                        case REPEAT -> {
+                            mTimesFactor = getTimesFactorStart();       // start again
+                            jump = true;
+                        }
+                        case CYCLE ->  mTimesFactorStepPerMs *= -1;        // keep cycling back and forth
+                    }
+                }
+            }
+        } else {
+            if (mPendingStartTimesFactor != null) {
+                mTimesFactor = mPendingStartTimesFactor;
+                mPendingStartTimesFactor = null;
+            } else {
+                mTimesFactor = getTimesFactorStart();
+            }
+
+            jump = true;
+        }
+
+        mLastMainLoopTimeNanos = mSimulationTimeNanos;
+        mStepFromTimesFactor = jump? mTimesFactor: from;
+        mStepToTimesFactor = mTimesFactor;
+    }
+
+    /**
+     * @param alpha fraction of a step elapsed since the last one
+     * @return times factor between the states before and after the last step, or the current one if it was set since
+     * */
+    private float interpolatedTimesFactor(float alpha) {
+        if (mTimesFactor != mStepToTimesFactor)
+            return mTimesFactor;
+
+        return mStepFromTimesFactor + (mStepToTimesFactor - mStepFromTimesFactor) * alpha;
+    }
+
+    /**
+     * Runs the fixed step simulation, and publishes one interpolated frame state per target frame period. With active rendering,
+     * the frame is presented right away, see {@link #directPresentCanvas(FrameState)}
+     * */
+    private void simulationLoop() {
+        final Thread thread = Thread.currentThread();
+        final FixedStepClock clock = new FixedStepClock(SIMULATION_STEP_NANOS, (int) (SIMULATION_MAX_CATCH_UP_NANOS / SIMULATION_STEP_NANOS), framePeriodNanos());
+        final DirectPresenter presenter = new DirectPresenter(null, false);
+
+        while (true) {
+            synchronized (mLock) {
+                if (mSimulationThread != thread)
+                    break;
+
+                final long now = System.nanoTime();
+                if (mLastMainLoopTimeNanos == -1) {
+                    clock.restart(now);
+                    mainLoop(0);
+                } else {
+                    for (int steps = clock.advance(now); steps > 0 && mSimulationThread == thread; steps--) {
+                        mainLoop(clock.getStepNanos());
+                    }
+                }
+
+                publishFrameState(mSimulationThread == thread? interpolatedTimesFactor(clock.alpha()): mTimesFactor);
+            }
+
+            if (!presentFromSimulation(presenter)) {
+                postFrameRequest();
+            }
+
+            clock.setFramePeriodNanos(framePeriodNanos());
+            final long deadline = clock.nextFrameDeadline(System.nanoTime());
+            long remaining;
+            while ((remaining = deadline - System.nanoTime()) > 0 && framePeriodNanos() >= clock.getFramePeriodNanos()) {      // woken early when the rate goes up
+                LockSupport.parkNanos(this, remaining);
+            }
+        }
+
+        if (clock.getDroppedNanos() > 0) {
+            Log.d(TAG, "simulation stopped, stalls dropped " + clock.getDroppedNanos() / 1_000_000 + " ms");
+        }
+    }
+
+    private long framePeriodNanos() {
+        return 1_000_000_000L / (mDisplayed? mTargetFrameRate: GlConfig.HIDDEN_FRAME_RATE);
+    }
+
+    /**
+     * Publishes the current state, and schedules a new frame on the UI thread unless the last drawn one is still up-to-date.
+     * Frame requests from any thread are coalesced until the UI thread gets to them
+     * */
+    public final void update() {
+        publishFrameState();
+        postFrameRequest();
+    }
+
+    private void postFrameRequest() {
+        if (!mDisplayed)
+            return;     // requested again once displayed
+
+        if (!mFramePosted.getAndSet(true)) {
+            Ui.uiPost(() -> {
+                mFramePosted.set(false);
+                if (!isFrameCurrent()) {
+                    requestFrame();
+                }
+            });
+        }
+    }
+
+    private void requestFrame() {
+        final ActiveRenderCanvas canvas = mActiveCanvas;
+        if (canvas == null || !canvas.renderFrame(mActivePainter)) {
+            repaint();
+        }
     }
 
 
-    protected void draw(Graphics2D g) {
-        final int width = getWidth(), height = getHeight();
-        final float timesFactor = mTimesFactor;
-        final int pointsCount = mPointsCount;
+    /* Direct Presentation */
 
-        // BG
-//        g.setColor(main.ui.GlConfig.bg());
-//        g.fillRect(0, 0, width, height);
+    /**
+     * With active rendering, frames of playback are presented right after they are published: from the simulation thread, or from the
+     * render thread with background rendering. Frame pacing then does not depend on the UI thread queue. Other frames, and expose events,
+     * go through the UI thread ({@link #requestFrame()})
+     *
+     * @return canvas to present a frame of the given state on from the calling thread, or null to go through the UI thread
+     * */
+    @Nullable
+    private ActiveRenderCanvas directPresentCanvas(@NotNull FrameState key) {
+        final ActiveRenderCanvas canvas = mActiveCanvas;
+        if (canvas == null || !key.playing || !mDisplayed || key.width <= 0 || key.height <= 0 || key.width != canvas.getWidth() || key.height != canvas.getHeight())
+            return null;
+
+        return canvas;
+    }
+
+    /**
+     * Presents a frame of the latest state from the simulation thread, drawing it here or on the render thread
+     *
+     * @return whether the frame was taken care of. If not, it goes through the UI thread
+     * */
+    private boolean presentFromSimulation(@NotNull DirectPresenter presenter) {
+        final FrameState key = getFrameState();
+        final ActiveRenderCanvas canvas = directPresentCanvas(key);
+        if (canvas == null)
+            return false;
 
-        // 1. Status
-        final String statusText = R.getStatusText(timesFactor);
-        if (!(statusText == null || statusText.isEmpty())) {
-            g.setColor(GlConfig.fgDark());
-            g.setFont(g.getFont().deriveFont(20f));
-            g.drawString(String.format("Times: %.2f", timesFactor), 20, height - 20);
+        if (mBackgroundRendering) {
+            if (!key.equals(mLastRequestedKey)) {
+                submitRenderRequest(key);       // presented by the render thread once drawn
+            }
+
+            return true;
         }
 
-        /* ..........................  Pre-Transforms ...........................*/
-        final AffineTransform t = g.getTransform();
+        return presenter.drawAndPresent(canvas, key);
+    }
 
-        // 1. Translate
-        Size translation = new Size(width / 2f, height / 2f);
-        final Size drag = getDrag();
-        if (drag != null)
-            translation = translation.add(drag);
-        t.translate(translation.width, translation.height);
+    /**
+     * Presents frames on the active canvas from a thread other than the UI thread. Owned by that thread
+     * */
+    private final class DirectPresenter implements Consumer<Graphics2D> {
 
-        // 2. Scale
-        final double scale = mScale;
-        t.scale((mInvertX? -1: 1) * scale, (mInvertY? -1: 1) * scale);
+        @Nullable
+        private FrameRenderer mRenderer;
+        /* present the front frame of the triple buffer, rather than one drawn here */
+        private final boolean mFromTripleBuffer;
+
+        @Nullable
+        private BufferedImage mImage;
+        @Nullable
+        private FrameState mKey;
 
-        g.setTransform(t);
+        DirectPresenter(@Nullable FrameRenderer renderer, boolean fromTripleBuffer) {
+            mRenderer = renderer;
+            mFromTripleBuffer = fromTripleBuffer;
+        }
 
+        /**
+         * Draws a frame of the given state and presents it. Simulation thread
+         * */
+        boolean drawAndPresent(@NotNull ActiveRenderCanvas canvas, @NotNull FrameState key) {
+            if (mRenderer == null) {
+                mRenderer = new FrameRenderer();
+            }
 
-        /* ........................... Main Drawing ............................... */
+            BufferedImage image = mImage;
+            if (image == null || image.getWidth() != key.renderWidth() || image.getHeight() != key.renderHeight()) {
+                image = mImage = new BufferedImage(key.renderWidth(), key.renderHeight(), BufferedImage.TYPE_INT_RGB);
+            }
 
-        // Circle
-        final float circleRadius = getCircleRadius(width, height);
-        final boolean drawCircle = mDrawCircle;
-        if (drawCircle) {
-            g.setColor(GlConfig.circleColor(timesFactor));
-            g.draw(new Ellipse2D.Float(-circleRadius, -circleRadius, circleRadius * 2, circleRadius * 2));
+            onFrameRendered(key, renderFrame(mRenderer, key, image, mRenderFont));
+            mKey = key;
+            return present(canvas);
         }
 
-        // Points
-        final float pointRadius = getPointRadius(circleRadius, pointsCount), pointDia = pointRadius * 2;
-        final float delTheta = RMath.TWO_PI / pointsCount;
-        Vector v1, v2;
-
-        final boolean drawPoints = mDrawPoints;
-        final Color pointColor = GlConfig.pointColor(timesFactor);
-        final IntFunction<Color> colorFunc = GlConfig.patternColorFunction(pointsCount, timesFactor);
+        /**
+         * Presents the current frame: the last one drawn, or the latest published to the triple buffer
+         * */
+        boolean present(@NotNull ActiveRenderCanvas canvas) {
+            if (!canvas.presentFrame(this))
+                return false;
 
-        for (int i=0; i < pointsCount; i++) {
-            // point
-            v1 = createVector(i, delTheta, circleRadius);
-            if (drawPoints) {
-                g.setColor(pointColor);
-                g.fill(new Ellipse2D.Float(v1.x - pointRadius, v1.y - pointRadius, pointDia, pointDia));
+            if (mKey != null && mInteractionQuality != RenderQuality.FULL) {
+                final FrameState shown = mKey;
+                Ui.uiPost(() -> refineInteractionIfShown(shown));
             }
 
-            // line
-            float i2 = (i * timesFactor) % pointsCount;
-            if (i != i2) {
-                v2 = createVector(i2, delTheta, circleRadius);
-                g.setColor(colorFunc.apply(i));
-                g.draw(new Line2D.Float(v1.x, v1.y, v2.x, v2.y));
-            }
+            return true;
         }
 
-    }
-
+        /**
+         * Paints the frame, with the strategy lock held. The front frame of the triple buffer is taken here, so that the UI thread
+         * never takes it while it is shown
+         * */
+        @Override
+        public void accept(Graphics2D g) {
+            if (mFromTripleBuffer) {
+                final TripleBuffer.Frame front = mTripleBuffer.acquireFront();
+                mImage = front.image();
+                mKey = front.key();
+            }
 
-    @Override
-    protected void paintComponent(Graphics _g) {
-        super.paintComponent(_g);
+            final BufferedImage image = mImage;
+            final FrameState key = mKey;
+            if (image == null || key == null || mRenderer == null)
+                return;
 
-        final Graphics2D g2d = (Graphics2D) _g;
-        if (GlConfig.FORCE_ANTIALIASING) {
-            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            drawFrame(g, image, key.width, key.height);
+            drawPresentStats(g, mRenderer, mRenderFont);
         }
-
-        draw(g2d);
     }
 
 
-    protected void mainLoop() {
-        final long pTimeMs = mLastMainLoopTimeStamp;
-        final long cTimeMs = System.currentTimeMillis();
 
-        if (pTimeMs != -1) {
-            final Long lastStickMs = mLastStickTimeStamp;
-            boolean sticked = mTimesFactorStickOnIntEnabled && lastStickMs != null && (cTimeMs - lastStickMs) < TIMES_FACTOR_STICK_WHEN_INT_DURATION_MS;
 
-            if (!sticked) {
-                final boolean inc = mTimesFactorStepPerMs > 0;
-                final float step = mTimesFactorStepPerMs * (cTimeMs - pTimeMs);
-                if (mTimesFactorStickOnIntEnabled) {
-                    float nextStop;
-                    if (RMath.isInt(mTimesFactor)) {
-                        nextStop = (mTimesFactor + (inc? 1: -1));
-                    } else {
-                        nextStop = (float) (inc? Math.ceil(mTimesFactor): Math.floor(mTimesFactor));
-                    }
 
-                    if (Math.abs(nextStop - mTimesFactor) <= Math.abs(step)) {
-                        mTimesFactor = nextStop;
-                        sticked = true;
-                    }
-                }
 
-                if (sticked) {
-                    mLastStickTimeStamp = cTimeMs;
-                }  else {
-                    mTimesFactor += step;
-                    mLastStickTimeStamp = null;
-                }
+    /* Visibility */
 
-                if (inc? mTimesFactor >= TIMES_FACTOR_MAX: mTimesFactor <= TIMES_FACTOR_MIN) {        // DONE
-                    mTimesFactor = RMath.constraint(mTimesFactor, TIMES_FACTOR_MIN, TIMES_FACTOR_MAX);
+    @Override
+    public void addNotify() {
+        super.addNotify();
 
-                    switch (mEndBehaviour) {
-                        case PAUSE -> setPlay(false);
-                        case REPEAT -> mTimesFactor = getTimesFactorStart();       // start again
-                        case CYCLE ->  mTimesFactorStepPerMs *= -1;        // keep cycling back and forth
-                    }
-                }
-            }
-        } else {
-            if (mPendingStartTimesFactor != null) {
-                mTimesFactor = mPendingStartTimesFactor;
-                mPendingStartTimesFactor = null;
-            } else {
-                mTimesFactor = getTimesFactorStart();
-            }
+        mWindow = SwingUtilities.getWindowAncestor(this);
+        if (mWindow != null) {
+            mWindow.addWindowListener(mWindowListener);
         }
 
-        mLastMainLoopTimeStamp = cTimeMs;
-        update();
+        updateDisplayed();
     }
 
-    public final void update() {
-        repaint();
+    @Override
+    public void removeNotify() {
+        if (mWindow != null) {
+            mWindow.removeWindowListener(mWindowListener);
+            mWindow = null;
+            mIconified = false;
+        }
+
+        super.removeNotify();
+        updateDisplayed();
     }
 
+    private void updateDisplayed() {
+        final boolean displayed = isShowing() && !mIconified;
+        if (mDisplayed == displayed)
+            return;
+
+        mDisplayed = displayed;
+        Log.d(TAG, displayed? "displayed, resuming full rate": "not displayed, rendering suspended");
 
+        if (displayed) {
+            final Thread simulation;
+            synchronized (mLock) {
+                simulation = mSimulationThread;
+            }
+
+            if (simulation != null) {
+                LockSupport.unpark(simulation);
+            }
 
+            update();
+        }
+    }
 
+    /**
+     * @return whether the panel is showing on screen, and its window is not iconified. Frames are only rendered while displayed
+     * */
+    public final boolean isDisplayed() {
+        return mDisplayed;
+    }
 
 
     public void addListener(@NotNull Listener l) {
@@ -357,19 +1380,24 @@ public class TimesTablePanel extends JPanel {
         return mListeners.removeListener(l);
     }
 
+    /**
+     * Notifies listeners on the UI thread
+     * */
     private void forEachListener(@NotNull Consumer<Listener> action) {
-        mListeners.forEachListener(action);
+        Ui.considerPost(() -> mListeners.forEachListener(action));
     }
 
 
 
     public void resetTimesFactor(boolean update) {
-        mPendingStartTimesFactor = null;
-        mTimesFactor = getTimesFactorStart();
-        mLastMainLoopTimeStamp = -1;
+        synchronized (mLock) {
+            mPendingStartTimesFactor = null;
+            mTimesFactor = getTimesFactorStart();
+            mLastMainLoopTimeNanos = -1;
 
-        if (update) {
-            update();
+            if (update) {
+                update();
+            }
         }
     }
 
@@ -395,15 +1423,17 @@ public class TimesTablePanel extends JPanel {
     }
 
     private boolean resetScaleAndDrag(boolean update) {
-        final boolean scaleChanged = resetScale(false);
-        final boolean dragChanged = resetDrag(false);
+        synchronized (mLock) {
+            final boolean scaleChanged = resetScale(false);
+            final boolean dragChanged = resetDrag(false);
 
-        final boolean changed = dragChanged || scaleChanged;
-        if (update && changed) {
-            update();
-        }
+            final boolean changed = dragChanged || scaleChanged;
+            if (update && changed) {
+                update();
+            }
 
-        return changed;
+            return changed;
+        }
     }
 
     public final void resetScaleAndDrag() {
@@ -411,18 +1441,20 @@ public class TimesTablePanel extends JPanel {
     }
 
     public final void reset(boolean resetScaleAndDrag) {
-        resetTimesFactor(false);
-        if (resetScaleAndDrag) {
-            resetScaleAndDrag(false);
-        }
+        synchronized (mLock) {
+            resetTimesFactor(false);
+            if (resetScaleAndDrag) {
+                resetScaleAndDrag(false);
+            }
 
-        update();
+            update();
+        }
     }
 
 
     private void noteCurrentTimesFactorOnPause() {
         mPendingStartTimesFactor = mTimesFactor;
-        mLastMainLoopTimeStamp = -1;
+        mLastMainLoopTimeNanos = -1;
     }
 
 
@@ -436,40 +1468,59 @@ public class TimesTablePanel extends JPanel {
 
 
     public final boolean isPlaying() {
-        return mLooper.isRunning();
+        synchronized (mLock) {
+            return mSimulationThread != null;
+        }
     }
 
     public final void setPlay(boolean play) {
-        if (isPlaying() == play) {
-            return;
-        }
+        synchronized (mLock) {
+            if (isPlaying() == play) {
+                return;
+            }
 
-        if (play) {
-            mLooper.start();
-        } else {
-            mLooper.stop();
-        }
+            if (play) {
+                cancelPrefetch();
+                final Thread thread = new Thread(this::simulationLoop, TAG + "-Simulation");
+                thread.setDaemon(true);
+                mSimulationThread = thread;
+                thread.start();
+            } else {
+                mSimulationThread = null;       // the thread exits on its next tick
+            }
 
-        onIsPlayingChanged(play);
+            update();       // quality is adaptive only while playing
+            onIsPlayingChanged(play);
+        }
     }
 
     public final boolean togglePlay() {
-        final boolean play = !isPlaying();
-        setPlay(play);
-        return play;
+        synchronized (mLock) {
+            final boolean play = !isPlaying();
+            setPlay(play);
+            return play;
+        }
     }
 
     public final void stop() {
-        setPlay(false);
-        reset(false);
+        synchronized (mLock) {
+            setPlay(false);
+            reset(false);
+        }
     }
 
-    public final int getLoopDelay() {
-        return mLooper.getDelay();
+    /**
+     * @return frames per second published while playing. The simulation itself always advances in fixed steps of {@link #SIMULATION_STEP_NANOS}
+     * */
+    public final int getTargetFrameRate() {
+        return mTargetFrameRate;
     }
 
-    public final void setLoopDelay(int loopDelay) {
-        mLooper.setDelay(loopDelay);
+    public final int setTargetFrameRate(int frameRate) {
+        mTargetFrameRate = RMath.constraint(TARGET_FRAME_RATE_MIN, TARGET_FRAME_RATE_MAX, frameRate);
+        mQualityGovernor.setBudgetNanos(1_000_000_000L / mTargetFrameRate);
+        mDynamicResolutionScaler.setBudgetNanos(1_000_000_000L / mTargetFrameRate);
+        return mTargetFrameRate;
     }
 
 
@@ -485,16 +1536,20 @@ public class TimesTablePanel extends JPanel {
     }
 
     public final float setTimesFactor(float timesFactor) {
-        timesFactor = RMath.constraint(timesFactor, TIMES_FACTOR_MIN, TIMES_FACTOR_MAX);
-        if (mTimesFactor != timesFactor) {
-            setTimesFactorInternal(timesFactor);
-        }
+        synchronized (mLock) {
+            timesFactor = RMath.constraint(timesFactor, TIMES_FACTOR_MIN, TIMES_FACTOR_MAX);
+            if (mTimesFactor != timesFactor) {
+                setTimesFactorInternal(timesFactor);
+            }
 
-        return mTimesFactor;
+            return mTimesFactor;
+        }
     }
 
     public final float getTimesFactor() {
-        return mTimesFactor;
+        synchronized (mLock) {
+            return mTimesFactor;
+        }
     }
 
 
@@ -504,21 +1559,25 @@ public class TimesTablePanel extends JPanel {
     }
 
     private void setPointsCountInternal(int pointsCount) {
-        mPointsCount = pointsCount;
+        mPointsCount = pointsCount;      // point rings are keyed by count, and rebuild themselves
         onPointsCountChanged(pointsCount);
     }
 
     public final int setPointsCount(int pointsCount) {
-        pointsCount = RMath.constraint(pointsCount, POINTS_COUNT_MIN, POINTS_COUNT_MAX);
-        if (mPointsCount != pointsCount) {
-            setPointsCountInternal(pointsCount);
-        }
+        synchronized (mLock) {
+            pointsCount = RMath.constraint(pointsCount, POINTS_COUNT_MIN, POINTS_COUNT_MAX);
+            if (mPointsCount != pointsCount) {
+                setPointsCountInternal(pointsCount);
+            }
 
-        return mPointsCount;
+            return mPointsCount;
+        }
     }
 
     public final int getPointsCount() {
-        return mPointsCount;
+        synchronized (mLock) {
+            return mPointsCount;
+        }
     }
 
     protected void onTimesFactorStepPerMsChanged(float stepPerMs) {
@@ -536,11 +1595,15 @@ public class TimesTablePanel extends JPanel {
     }
 
     public final float setTimesFactorSpeedPercentage(float percent) {
-        return setTimesFactorStepPerMsInternal((mTimesFactorStepPerMs < 0? -1: 1) * getTimesFactorStepPerMs(percent));
+        synchronized (mLock) {
+            return setTimesFactorStepPerMsInternal((mTimesFactorStepPerMs < 0? -1: 1) * getTimesFactorStepPerMs(percent));
+        }
     }
 
     public final float getTimesFactorSpeedPercent() {
-        return getTimesFactorSpeedPercent(mTimesFactorStepPerMs);
+        synchronized (mLock) {
+            return getTimesFactorSpeedPercent(mTimesFactorStepPerMs);
+        }
     }
 
 
@@ -556,19 +1619,25 @@ public class TimesTablePanel extends JPanel {
     }
 
     public final boolean setTimesFactorStickOnIntEnabled(boolean stickOnIntEnabled) {
-        if (mTimesFactorStickOnIntEnabled == stickOnIntEnabled)
-            return false;
-        setTimesFactorStickOnIntEnabledInternal(stickOnIntEnabled);
-        return true;
+        synchronized (mLock) {
+            if (mTimesFactorStickOnIntEnabled == stickOnIntEnabled)
+                return false;
+            setTimesFactorStickOnIntEnabledInternal(stickOnIntEnabled);
+            return true;
+        }
     }
 
     public final boolean toggleTimesFactorStickOnIntEnabled() {
-        setTimesFactorStickOnIntEnabledInternal(!mTimesFactorStickOnIntEnabled);
-        return mTimesFactorStickOnIntEnabled;
+        synchronized (mLock) {
+            setTimesFactorStickOnIntEnabledInternal(!mTimesFactorStickOnIntEnabled);
+            return mTimesFactorStickOnIntEnabled;
+        }
     }
 
     public final boolean isTimesFactorStickOnIntEnabled() {
-        return mTimesFactorStickOnIntEnabled;
+        synchronized (mLock) {
+            return mTimesFactorStickOnIntEnabled;
+        }
     }
 
 
@@ -577,16 +1646,20 @@ public class TimesTablePanel extends JPanel {
     }
 
     public void setEndBehaviour(@NotNull EndBehaviour endBehaviour) {
-        if (mEndBehaviour != endBehaviour) {
-            final EndBehaviour prev = mEndBehaviour;
-            mEndBehaviour = endBehaviour;
-            onEndBehaviourChanged(prev, endBehaviour);
+        synchronized (mLock) {
+            if (mEndBehaviour != endBehaviour) {
+                final EndBehaviour prev = mEndBehaviour;
+                mEndBehaviour = endBehaviour;
+                onEndBehaviourChanged(prev, endBehaviour);
+            }
         }
     }
 
     @NotNull
     public EndBehaviour getEndBehaviour() {
-        return mEndBehaviour;
+        synchronized (mLock) {
+            return mEndBehaviour;
+        }
     }
 
     public void setPatternColorMode(@NotNull GlConfig.PatternColorMode colorMode) {
@@ -595,6 +1668,263 @@ public class TimesTablePanel extends JPanel {
     }
 
 
+    @NotNull
+    protected final ChordRenderer getRenderer(@NotNull RenderMode renderMode) {
+        return mFrameRenderer.getRenderer(renderMode);
+    }
+
+    protected void onRenderModeChanged(@NotNull RenderMode renderMode) {
+        update();
+        forEachListener(l -> l.onRenderModeChanged(this, renderMode));
+    }
+
+    public void setRenderMode(@NotNull RenderMode renderMode) {
+        synchronized (mLock) {
+            if (mRenderMode != renderMode) {
+                mRenderMode = renderMode;
+                onRenderModeChanged(renderMode);
+            }
+        }
+    }
+
+    @NotNull
+    public RenderMode getRenderMode() {
+        synchronized (mLock) {
+            return mRenderMode;
+        }
+    }
+
+
+
+    /* Interactions */
+
+    /**
+     * Marks the start or end of a gesture. While any is active, frames are drawn as coarse previews. Once all have ended, frames are refined
+     * to full quality over the next few presented frames. Coalesced gesture events each replace the pending preview, so they never queue
+     * full quality renders
+     * */
+    public final void setInteracting(@NotNull Interaction interaction, boolean interacting) {
+        Ui.considerPost(() -> {
+            if (interacting? !mInteractions.add(interaction): !mInteractions.remove(interaction))
+                return;
+
+            if (interacting) {
+                if (mInteractionQuality != INTERACTION_PREVIEW_QUALITY) {
+                    mInteractionQuality = INTERACTION_PREVIEW_QUALITY;
+                    update();
+                }
+            } else if (mInteractions.isEmpty()) {
+                refineInteraction();
+            }
+        });
+    }
+
+    public final boolean isInteracting() {
+        return !mInteractions.isEmpty();
+    }
+
+    /**
+     * Steps the gesture quality up one refinement level. UI thread
+     * */
+    private void refineInteraction() {
+        final RenderQuality current = mInteractionQuality;
+        if (current == RenderQuality.FULL)
+            return;
+
+        RenderQuality next = RenderQuality.FULL;
+        for (RenderQuality q: INTERACTION_REFINE_QUALITIES) {
+            if (q.ordinal() < current.ordinal()) {
+                next = q;
+                break;
+            }
+        }
+
+        mInteractionQuality = next;
+        update();
+    }
+
+    private void onZoomGesture() {
+        setInteracting(Interaction.ZOOM, true);
+
+        if (mZoomSettleTimer == null) {
+            mZoomSettleTimer = new Timer(ZOOM_SETTLE_MS, e -> setInteracting(Interaction.ZOOM, false));
+            mZoomSettleTimer.setRepeats(false);
+        }
+
+        mZoomSettleTimer.restart();
+    }
+
+
+    /* Adaptive Quality */
+
+    protected void onAdaptiveQualityChanged(boolean adaptiveQuality) {
+        update();
+        forEachListener(l -> l.onAdaptiveQualityChanged(this, adaptiveQuality));
+    }
+
+    /**
+     * Adaptive quality: while playing, frames that do not fit the frame budget (one period of the target frame rate) lower the
+     * {@link RenderQuality}, which is raised back once there is headroom. Paused frames are always drawn at full quality
+     * */
+    public final void setAdaptiveQuality(boolean adaptiveQuality) {
+        synchronized (mLock) {
+            if (mAdaptiveQuality != adaptiveQuality) {
+                mAdaptiveQuality = adaptiveQuality;
+                mQualityGovernor.reset();
+                onAdaptiveQualityChanged(adaptiveQuality);
+            }
+        }
+    }
+
+    public final void toggleAdaptiveQuality() {
+        synchronized (mLock) {
+            setAdaptiveQuality(!mAdaptiveQuality);
+        }
+    }
+
+    public final boolean isAdaptiveQualityEnabled() {
+        return mAdaptiveQuality;
+    }
+
+    @NotNull
+    public final QualityGovernor getQualityGovernor() {
+        return mQualityGovernor;
+    }
+
+
+    /* Dynamic Resolution */
+
+    protected void onDynamicResolutionChanged(boolean dynamicResolution) {
+        update();
+        forEachListener(l -> l.onDynamicResolutionChanged(this, dynamicResolution));
+    }
+
+    /**
+     * Dynamic resolution: while playing, frames that do not fit the frame budget are drawn at a reduced internal resolution
+     * (down to {@code 50%}) and scaled up with bilinear filtering on present. Paused frames are always drawn at full resolution
+     * */
+    public final void setDynamicResolution(boolean dynamicResolution) {
+        synchronized (mLock) {
+            if (mDynamicResolution != dynamicResolution) {
+                mDynamicResolution = dynamicResolution;
+                mDynamicResolutionScaler.reset();
+                onDynamicResolutionChanged(dynamicResolution);
+            }
+        }
+    }
+
+    public final void toggleDynamicResolution() {
+        synchronized (mLock) {
+            setDynamicResolution(!mDynamicResolution);
+        }
+    }
+
+    public final boolean isDynamicResolutionEnabled() {
+        return mDynamicResolution;
+    }
+
+    @NotNull
+    public final DynamicResolution getDynamicResolution() {
+        return mDynamicResolutionScaler;
+    }
+
+
+    /* Background Rendering */
+
+    protected void onBackgroundRenderingChanged(boolean backgroundRendering) {
+        update();
+        forEachListener(l -> l.onBackgroundRenderingChanged(this, backgroundRendering));
+    }
+
+    /**
+     * Background rendering: frames are drawn by a render thread, so that heavy frames do not block the UI thread.
+     * The UI thread shows the latest completed frame meanwhile
+     * */
+    public final void setBackgroundRendering(boolean backgroundRendering) {
+        Ui.considerPost(() -> {
+            if (mBackgroundRendering != backgroundRendering) {
+                mBackgroundRendering = backgroundRendering;
+                mLastRequestedKey = null;
+                mLastDrawnKey = null;
+                mLastDrawnImage = null;
+                if (!backgroundRendering) {
+                    mRenderRequest.set(null);
+                    mTripleBuffer.clear();
+                }
+
+                onBackgroundRenderingChanged(backgroundRendering);
+            }
+        });
+    }
+
+    public final void toggleBackgroundRendering() {
+        Ui.considerPost(() -> setBackgroundRendering(!mBackgroundRendering));
+    }
+
+    public final boolean isBackgroundRenderingEnabled() {
+        return mBackgroundRendering;
+    }
+
+
+    /* Active Rendering */
+
+    protected void onActiveRenderingChanged(boolean activeRendering) {
+        update();
+        forEachListener(l -> l.onActiveRenderingChanged(this, activeRendering));
+    }
+
+    private void setActiveRenderingInternal(boolean activeRendering) {
+        mActiveRendering = activeRendering;
+        if (activeRendering) {
+            final ActiveRenderCanvas canvas = new ActiveRenderCanvas(this::requestFrame);
+            canvas.setPageFlippingPreferred(mPageFlippingPreferred);
+            canvas.addMouseListener(mMouseHandler);
+            canvas.addMouseMotionListener(mMouseHandler);
+            canvas.addMouseWheelListener(mMouseHandler);
+            mActiveCanvas = canvas;
+            add(canvas, BorderLayout.CENTER);
+        } else if (mActiveCanvas != null) {
+            remove(mActiveCanvas);
+            mActiveCanvas = null;
+        }
+
+        revalidate();
+        repaint();
+    }
+
+    /**
+     * Active rendering: frames are drawn into a {@link java.awt.image.BufferStrategy} and presented directly by the thread that
+     * updates the panel, instead of being scheduled through {@link #repaint()}
+     * */
+    public final void setActiveRendering(boolean activeRendering) {
+        Ui.considerPost(() -> {
+            if (mActiveRendering != activeRendering) {
+                setActiveRenderingInternal(activeRendering);
+                onActiveRenderingChanged(activeRendering);
+            }
+        });
+    }
+
+    public final void toggleActiveRendering() {
+        Ui.considerPost(() -> setActiveRendering(!mActiveRendering));
+    }
+
+    public final boolean isActiveRenderingEnabled() {
+        return mActiveRendering;
+    }
+
+    /**
+     * Prefers page flipping over blitting for active rendering, typically while in full-screen exclusive mode
+     * */
+    public void setPageFlippingPreferred(boolean pageFlippingPreferred) {
+        Ui.considerPost(() -> {
+            mPageFlippingPreferred = pageFlippingPreferred;
+            if (mActiveCanvas != null) {
+                mActiveCanvas.setPageFlippingPreferred(pageFlippingPreferred);
+            }
+        });
+    }
+
 
     /*  ..................................... Transforms ............................*/
 
@@ -604,18 +1934,24 @@ public class TimesTablePanel extends JPanel {
     }
 
     public void setDrawCircle(boolean drawCircle) {
-        if (mDrawCircle != drawCircle) {
-            mDrawCircle = drawCircle;
-            onDrawCircleChanged(drawCircle);
+        synchronized (mLock) {
+            if (mDrawCircle != drawCircle) {
+                mDrawCircle = drawCircle;
+                onDrawCircleChanged(drawCircle);
+            }
         }
     }
 
     public void toggleDrawCircle() {
-        setDrawCircle(!mDrawCircle);
+        synchronized (mLock) {
+            setDrawCircle(!mDrawCircle);
+        }
     }
 
     public boolean isDrawCircleEnabled() {
-        return mDrawCircle;
+        synchronized (mLock) {
+            return mDrawCircle;
+        }
     }
 
 
@@ -625,18 +1961,24 @@ public class TimesTablePanel extends JPanel {
     }
 
     public void setDrawPoints(boolean drawPoints) {
-        if (mDrawPoints != drawPoints) {
-            mDrawPoints = drawPoints;
-            onDrawPointsChanged(drawPoints);
+        synchronized (mLock) {
+            if (mDrawPoints != drawPoints) {
+                mDrawPoints = drawPoints;
+                onDrawPointsChanged(drawPoints);
+            }
         }
     }
 
     public void toggleDrawPoints() {
-        setDrawPoints(!mDrawPoints);
+        synchronized (mLock) {
+            setDrawPoints(!mDrawPoints);
+        }
     }
 
     public boolean isDrawPointsEnabled() {
-        return mDrawPoints;
+        synchronized (mLock) {
+            return mDrawPoints;
+        }
     }
 
 
@@ -648,18 +1990,24 @@ public class TimesTablePanel extends JPanel {
     }
 
     public void setInvertY(boolean invertY) {
-        if (mInvertY != invertY) {
-            mInvertY = invertY;
-            onInvertYChanged(invertY);
+        synchronized (mLock) {
+            if (mInvertY != invertY) {
+                mInvertY = invertY;
+                onInvertYChanged(invertY);
+            }
         }
     }
 
     public void toggleInvertY() {
-        setInvertY(!mInvertY);
+        synchronized (mLock) {
+            setInvertY(!mInvertY);
+        }
     }
 
     public boolean isYInverted() {
-        return mInvertY;
+        synchronized (mLock) {
+            return mInvertY;
+        }
     }
 
 
@@ -670,18 +2018,24 @@ public class TimesTablePanel extends JPanel {
     }
 
     public void setInvertX(boolean invertX) {
-        if (mInvertX != invertX) {
-            mInvertX = invertX;
-            onInvertXChanged(invertX);
+        synchronized (mLock) {
+            if (mInvertX != invertX) {
+                mInvertX = invertX;
+                onInvertXChanged(invertX);
+            }
         }
     }
 
     public void toggleInvertX() {
-        setInvertX(!mInvertX);
+        synchronized (mLock) {
+            setInvertX(!mInvertX);
+        }
     }
 
     public boolean isXInverted() {
-        return mInvertX;
+        synchronized (mLock) {
+            return mInvertX;
+        }
     }
 
 
@@ -692,10 +2046,18 @@ public class TimesTablePanel extends JPanel {
     }
 
     protected double getScaleIncrement(@NotNull MouseWheelEvent e) {
-        return -e.getPreciseWheelRotation() * GlConfig.SCALE_WHEEL_ROTATION_MULTIPLIER;
+        final double rotation = -e.getPreciseWheelRotation();
+        final double scale = getScale();
+        if (scale >= GlConfig.DEEP_ZOOM_SCALE)
+            return scale * (Math.pow(GlConfig.DEEP_ZOOM_WHEEL_FACTOR, rotation) - 1);
+
+        return rotation * GlConfig.SCALE_WHEEL_ROTATION_MULTIPLIER;
     }
 
     protected double getScaleUnitIncrement(double scale) {
+        if (scale >= GlConfig.DEEP_ZOOM_SCALE)
+            return scale * (GlConfig.DEEP_ZOOM_UNIT_FACTOR - 1);
+
         final int int_scale = (int) scale;
         if (int_scale == scale)
             return GlConfig.DEFAULT_SCALE_UNIT_INCREMENT;
@@ -704,6 +2066,9 @@ public class TimesTablePanel extends JPanel {
     }
 
     protected double getScaleUnitDecrement(double scale) {
+        if (scale > GlConfig.DEEP_ZOOM_SCALE)
+            return scale - Math.max(GlConfig.DEEP_ZOOM_SCALE, scale / GlConfig.DEEP_ZOOM_UNIT_FACTOR);
+
         final int int_scale = (int) scale;
         final double def = scale > 1? GlConfig.DEFAULT_SCALE_UNIT_INCREMENT: GlConfig.DEFAULT_SCALE_UNIT_DECREMENT_BELOW_1;
         if (int_scale == scale)
@@ -729,13 +2094,22 @@ public class TimesTablePanel extends JPanel {
     }
 
     private boolean setScale(double scale, boolean update) {
-        scale = RMath.constraint(getMinimumScale(), getMaximumScale(), scale);
-        if (mScale == scale)
-            return false;
+        synchronized (mLock) {
+            scale = RMath.constraint(getMinimumScale(), getMaximumScale(), scale);
+            if (mScale == scale)
+                return false;
 
-        mScale = scale;
-        onScaleChanged(scale, update);
-        return true;
+            final double prevScale = mScale;
+            mScale = scale;
+
+            // keep the point at the center of the view in place
+            if (mDrag != null) {
+                setDrag(mDrag.scale(scale / prevScale), false);
+            }
+
+            onScaleChanged(scale, update);
+            return true;
+        }
     }
 
     public final boolean setScale(double scale) {
@@ -743,7 +2117,9 @@ public class TimesTablePanel extends JPanel {
     }
 
     private boolean increaseScale(double scaleDelta, boolean update) {
-        return setScale(mScale + scaleDelta, update);
+        synchronized (mLock) {
+            return setScale(mScale + scaleDelta, update);
+        }
     }
 
     public final boolean increaseScale(double scaleDelta) {
@@ -751,16 +2127,22 @@ public class TimesTablePanel extends JPanel {
     }
 
     public final boolean incrementScaleByUnit() {
-        return increaseScale(getScaleUnitIncrement(mScale));
+        synchronized (mLock) {
+            return increaseScale(getScaleUnitIncrement(mScale));
+        }
     }
 
     public final boolean decrementScaleByUnit() {
-        return increaseScale(-getScaleUnitDecrement(mScale));
+        synchronized (mLock) {
+            return increaseScale(-getScaleUnitDecrement(mScale));
+        }
     }
 
 
     public final double getScale() {
-        return mScale;
+        synchronized (mLock) {
+            return mScale;
+        }
     }
 
 //    protected void onScalePivotChanged(@Nullable Point2D scalePivot, boolean update) {
@@ -802,7 +2184,7 @@ public class TimesTablePanel extends JPanel {
 
     @Nullable
     public Size getMaxDrag() {
-        final double s = Math.max(0.5, mScale);
+        final double s = Math.max(0.5, getScale());
         return new Size(getWidth() * s, getHeight() * s);
     }
 
@@ -816,17 +2198,19 @@ public class TimesTablePanel extends JPanel {
     }
 
     private boolean setDrag(@Nullable Size drag, boolean update) {
-        Size max;
-        if (drag != null && (max = getMaxDrag()) != null) {
-            drag = new Size(Math.signum(drag.width) * Math.min(Math.abs(max.width), Math.abs(drag.width)), Math.signum(drag.height) * Math.min(Math.abs(max.height), Math.abs(drag.height)));
-        }
+        synchronized (mLock) {
+            Size max;
+            if (drag != null && (max = getMaxDrag()) != null) {
+                drag = new Size(Math.signum(drag.width) * Math.min(Math.abs(max.width), Math.abs(drag.width)), Math.signum(drag.height) * Math.min(Math.abs(max.height), Math.abs(drag.height)));
+            }
 
-        if (Objects.equals(mDrag, drag))
-            return false;
+            if (Objects.equals(mDrag, drag))
+                return false;
 
-        mDrag = drag;
-        onDragChanged(drag, update);
-        return true;
+            mDrag = drag;
+            onDragChanged(drag, update);
+            return true;
+        }
     }
 
     public final boolean setDrag(@Nullable Size drag) {
@@ -834,7 +2218,9 @@ public class TimesTablePanel extends JPanel {
     }
 
     private boolean dragBy(@NotNull Size dragDelta, boolean update) {
-        return setDrag(mDrag != null? mDrag.add(dragDelta): dragDelta, update);
+        synchronized (mLock) {
+            return setDrag(mDrag != null? mDrag.add(dragDelta): dragDelta, update);
+        }
     }
 
     public final boolean dragBy(@NotNull Size dragDelta) {
@@ -851,16 +2237,19 @@ public class TimesTablePanel extends JPanel {
 
     @Nullable
     public final Size getDrag() {
-        return mDrag;
+        synchronized (mLock) {
+            return mDrag;
+        }
     }
 
     public final boolean hasScale() {
-        return mScale != 1;
+        return getScale() != 1;
     }
 
 
     public final boolean hasDrag() {
-        return mDrag != null && (mDrag.width != 0 || mDrag.height != 0);
+        final Size drag = getDrag();
+        return drag != null && (drag.width != 0 || drag.height != 0);
     }
 
     public final boolean hasScaleOrDrag() {
@@ -901,8 +2290,11 @@ public class TimesTablePanel extends JPanel {
 
         @Override
         public void componentResized(ComponentEvent e) {
-            if (mDrag != null && isMaxDragDimensionDependent()) {
-                setDrag(mDrag.copy());      // update
+            syncSize();
+
+            final Size drag = getDrag();
+            if (drag != null && isMaxDragDimensionDependent()) {
+                setDrag(drag.copy());      // update
             }
         }
 
@@ -912,12 +2304,12 @@ public class TimesTablePanel extends JPanel {
 
         @Override
         public void componentShown(ComponentEvent e) {
-
+            updateDisplayed();
         }
 
         @Override
         public void componentHidden(ComponentEvent e) {
-
+            updateDisplayed();
         }
     }
 
@@ -944,7 +2336,7 @@ public class TimesTablePanel extends JPanel {
         public void mousePressed(MouseEvent e) {
             if (shouldDragOnMousePress(e)) {
                 mMouseDragStartPoint = e.getPoint();
-                mMouseDragStart = mDrag;
+                mMouseDragStart = getDrag();
             } else {
                 mMouseDragStartPoint = null;
                 mMouseDragStart = null;
@@ -955,6 +2347,7 @@ public class TimesTablePanel extends JPanel {
         public void mouseReleased(MouseEvent e) {
             mMouseDragStartPoint = null;
             mMouseDragStart = null;
+            setInteracting(Interaction.DRAG, false);
         }
 
         @Override
@@ -974,6 +2367,10 @@ public class TimesTablePanel extends JPanel {
             final Point2D startPoint = mMouseDragStartPoint;
             final Size startDrag = mMouseDragStart;
             if (startPoint != null) {
+                if (!isTransformFastPathApplicable(getFrameState())) {
+                    setInteracting(Interaction.DRAG, true);
+                }
+
                 final Size del = new Size(startPoint, e.getPoint());
                 setDrag(startDrag != null? startDrag.add(del): del);
             }
@@ -992,6 +2389,10 @@ public class TimesTablePanel extends JPanel {
                 return;
 
 //            final boolean pivotChanged = setScalePivot(e.getPoint(), false);
+            if (!isTransformFastPathApplicable(getFrameState())) {
+                onZoomGesture();
+            }
+
             final boolean scaleChanged = increaseScale(getScaleIncrement(e), false);
 
 //            if (pivotChanged || scaleChanged) {
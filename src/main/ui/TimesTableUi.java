@@ -1,6 +1,8 @@
 package main.ui;
 
 import main.R;
+import main.math.SweepMetric;
+import main.render.RenderMode;
 import main.util.Format;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -12,6 +14,7 @@ import java.awt.*;
 import java.awt.event.*;
 import java.util.Collection;
 import java.util.EnumMap;
+import java.util.Hashtable;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -55,6 +58,13 @@ public class TimesTableUi extends JFrame implements TimesTablePanel.Listener {
     final JLabel patternColorModeLabel;
     final JComboBox<GlConfig.PatternColorMode> patternColorModeComboBox;
 
+    final JLabel renderModeLabel;
+    final JComboBox<RenderMode> renderModeComboBox;
+
+    final HeatMapPanel heatMap;
+    final JComboBox<SweepMetric> heatMapMetricComboBox;
+    final JPanel heatMapPane;
+
     final JLabel scaleText;
     final JButton scaleIncButton;
     final JButton scaleDecButton;
@@ -67,6 +77,7 @@ public class TimesTableUi extends JFrame implements TimesTablePanel.Listener {
     final JButton toggleControlsButton;
 
     private boolean mIgnoreTimesSliderEvent;
+    private boolean mIgnorePointsSliderEvent;
 
     /* Menu */
     private final JMenuBar menuBar;
@@ -84,6 +95,29 @@ public class TimesTableUi extends JFrame implements TimesTablePanel.Listener {
         return Math.round(speedPercent);
     }
 
+    /* Points count slider is logarithmic */
+    private static final int POINTS_COUNT_SLIDER_MAX = 5000;
+
+    private static int pointsCountToSlider(int pointsCount) {
+        final double decades = Math.log((double) TimesTablePanel.POINTS_COUNT_MAX / TimesTablePanel.POINTS_COUNT_MIN);
+        return (int) Math.round(POINTS_COUNT_SLIDER_MAX * Math.log((double) pointsCount / TimesTablePanel.POINTS_COUNT_MIN) / decades);
+    }
+
+    private static int sliderToPointsCount(int value) {
+        final double ratio = (double) TimesTablePanel.POINTS_COUNT_MAX / TimesTablePanel.POINTS_COUNT_MIN;
+        return (int) Math.round(TimesTablePanel.POINTS_COUNT_MIN * Math.pow(ratio, (double) value / POINTS_COUNT_SLIDER_MAX));
+    }
+
+    @NotNull
+    private static Hashtable<Integer, JComponent> createPointsCountLabels() {
+        final Hashtable<Integer, JComponent> labels = new Hashtable<>();
+        for (int count = TimesTablePanel.POINTS_COUNT_MIN; count <= TimesTablePanel.POINTS_COUNT_MAX; count *= 10) {
+            labels.put(pointsCountToSlider(count), new JLabel(R.getPointsCountLabel(count)));
+        }
+
+        return labels;
+    }
+
     public TimesTableUi(@Nullable String title) {
         super(title == null || title.isEmpty() ? R.APP_NAME : title);
 
@@ -93,9 +127,9 @@ public class TimesTableUi extends JFrame implements TimesTablePanel.Listener {
         final int pointsCount = panel.getPointsCount();
         pointsCountText = new JLabel(R.getPointsCountText(pointsCount));
 
-        pointsCountSlider = new JSlider(SwingConstants.HORIZONTAL, TimesTablePanel.POINTS_COUNT_MIN, TimesTablePanel.POINTS_COUNT_MAX, pointsCount);
+        pointsCountSlider = new JSlider(SwingConstants.HORIZONTAL, 0, POINTS_COUNT_SLIDER_MAX, pointsCountToSlider(pointsCount));
         pointsCountSlider.setToolTipText(R.getPointsCountShortDes());
-        pointsCountSlider.setLabelTable(pointsCountSlider.createStandardLabels(TimesTablePanel.POINTS_COUNT_MAX - TimesTablePanel.POINTS_COUNT_MIN, TimesTablePanel.POINTS_COUNT_MIN));
+        pointsCountSlider.setLabelTable(createPointsCountLabels());
         pointsCountSlider.setPaintLabels(true);
 
         // Times factor
@@ -156,6 +190,17 @@ public class TimesTableUi extends JFrame implements TimesTablePanel.Listener {
         patternColorModeComboBox.setSelectedIndex(GlConfig.getPatternColorMode().ordinal());
         patternColorModeComboBox.setToolTipText(R.getPatternColorModeShortDes());
 
+        renderModeLabel = new JLabel(R.getRenderModeLabelText());
+        renderModeLabel.setToolTipText(R.getRenderModeShortDes());
+        renderModeComboBox = new JComboBox<>(RenderMode.sharedValues());
+        renderModeComboBox.setSelectedIndex(panel.getRenderMode().ordinal());
+        renderModeComboBox.setToolTipText(R.getRenderModeShortDes());
+
+        // Heat Map
+        heatMap = new HeatMapPanel(panel);
+        heatMapMetricComboBox = new JComboBox<>(SweepMetric.sharedValues());
+        heatMapMetricComboBox.setSelectedIndex(heatMap.getMetric().ordinal());
+
         // Transforms
         scaleText = new JLabel(R.getScaleText(panel.getScale()));
         scaleIncButton = new JButton(uia(ActionInfo.SCALE_UP));
@@ -189,6 +234,10 @@ public class TimesTableUi extends JFrame implements TimesTablePanel.Listener {
         patternColorModeComoPanel.add(patternColorModeLabel);
         patternColorModeComoPanel.add(patternColorModeComboBox);
 
+        final JPanel renderModeComboPanel = new JPanel(new FlowLayout(FlowLayout.LEADING, 8, 2));
+        renderModeComboPanel.add(renderModeLabel);
+        renderModeComboPanel.add(renderModeComboBox);
+
         final JPanel buttonsPanel = new JPanel(new GridLayout(2, 1, 4, 4));
         buttonsPanel.add(playButton);
         buttonsPanel.add(resetMainButton);
@@ -214,6 +263,7 @@ public class TimesTableUi extends JFrame implements TimesTablePanel.Listener {
         controlPanel.add(buttonsPanel);
         controlPanel.add(checksPanel);
         controlPanel.add(comboPanel);
+        controlPanel.add(renderModeComboPanel);
 
 
         final JPanel slidersPanel = new JPanel(new GridLayout(2, 3, 5, 2));
@@ -261,12 +311,30 @@ public class TimesTableUi extends JFrame implements TimesTablePanel.Listener {
         add(controlScrollPane, BorderLayout.SOUTH);
         add(panel, BorderLayout.CENTER);
 
+        final JPanel heatMapMetricPanel = new JPanel(new FlowLayout(FlowLayout.LEADING, 8, 2));
+        heatMapMetricPanel.add(new JLabel(R.getHeatMapMetricText()));
+        heatMapMetricPanel.add(heatMapMetricComboBox);
+
+        heatMapPane = new JPanel(new BorderLayout(0, 0));
+        heatMapPane.add(heatMapMetricPanel, BorderLayout.NORTH);
+        heatMapPane.add(heatMap, BorderLayout.CENTER);
+        heatMapPane.setVisible(GlConfig.DEFAULT_HEAT_MAP_VISIBLE);
+        add(heatMapPane, BorderLayout.EAST);
+
 
         // Listeners
         panel.addListener(this);
 
-        pointsCountSlider.addChangeListener(ev -> setPointsCount(pointsCountSlider.getValue()));
+        pointsCountSlider.addChangeListener(ev -> {
+            panel.setInteracting(TimesTablePanel.Interaction.SLIDER, pointsCountSlider.getValueIsAdjusting());
+            if (mIgnorePointsSliderEvent) {
+                mIgnorePointsSliderEvent = false;
+            } else {
+                setPointsCount(sliderToPointsCount(pointsCountSlider.getValue()));
+            }
+        });
         timesFactorSlider.addChangeListener(ev -> {
+            panel.setInteracting(TimesTablePanel.Interaction.SLIDER, timesFactorSlider.getValueIsAdjusting());
             if (mIgnoreTimesSliderEvent) {
                 mIgnoreTimesSliderEvent = false;
             } else {
@@ -287,6 +355,8 @@ public class TimesTableUi extends JFrame implements TimesTablePanel.Listener {
 //        drawPointsCheck.addItemListener(e -> setDrawPoints(drawPointsCheck.isSelected()));
 
         patternColorModeComboBox.addActionListener(e -> setPatternColorMode(GlConfig.PatternColorMode.sharedValues()[patternColorModeComboBox.getSelectedIndex()]));
+        renderModeComboBox.addActionListener(e -> setRenderMode(RenderMode.sharedValues()[renderModeComboBox.getSelectedIndex()]));
+        heatMapMetricComboBox.addActionListener(e -> heatMap.setMetric(SweepMetric.sharedValues()[heatMapMetricComboBox.getSelectedIndex()]));
         endBehaviourComboBox.addActionListener(e -> setEndBehaviour(TimesTablePanel.EndBehaviour.sharedValues()[endBehaviourComboBox.getSelectedIndex()]));
 //        scaleIncButton.addActionListener(e -> incrementScaleByUnit());
 //        scaleDecButton.addActionListener(e -> decrementScaleByUnit());
@@ -308,9 +378,15 @@ public class TimesTableUi extends JFrame implements TimesTablePanel.Listener {
         viewMenu.addSeparator();
         viewMenu.add(uia(ActionInfo.TOGGLE_MENUBAR));
         viewMenu.add(uia(ActionInfo.TOGGLE_CONTROLS));
+        viewMenu.add(new JCheckBoxMenuItem(uia(ActionInfo.TOGGLE_HEAT_MAP).setSelected(GlConfig.DEFAULT_HEAT_MAP_VISIBLE)));
         viewMenu.addSeparator();
         viewMenu.add(uia(ActionInfo.TOGGLE_FULLSCREEN));
         viewMenu.add(uia(ActionInfo.TOGGLE_PRESENTATION_MODE));
+        viewMenu.addSeparator();
+        viewMenu.add(new JCheckBoxMenuItem(uia(ActionInfo.TOGGLE_ACTIVE_RENDERING).setSelected(panel.isActiveRenderingEnabled())));
+        viewMenu.add(new JCheckBoxMenuItem(uia(ActionInfo.TOGGLE_BACKGROUND_RENDERING).setSelected(panel.isBackgroundRenderingEnabled())));
+        viewMenu.add(new JCheckBoxMenuItem(uia(ActionInfo.TOGGLE_ADAPTIVE_QUALITY).setSelected(panel.isAdaptiveQualityEnabled())));
+        viewMenu.add(new JCheckBoxMenuItem(uia(ActionInfo.TOGGLE_DYNAMIC_RESOLUTION).setSelected(panel.isDynamicResolutionEnabled())));
 
         // Run
         setupActionKeyBindings(getRootPane(), JComponent.WHEN_IN_FOCUSED_WINDOW, JComponent.WHEN_ANCESTOR_OF_FOCUSED_COMPONENT);
@@ -364,6 +440,7 @@ public class TimesTableUi extends JFrame implements TimesTablePanel.Listener {
     private void setFullscreenInternal(boolean fullscreen) {
         getGraphicsConfiguration().getDevice().setFullScreenWindow(fullscreen? TimesTableUi.this: null);
 //        setMenuBarVisibleInternal(!fullscreen);
+        panel.setPageFlippingPreferred(fullscreen);
         mFullscreen = fullscreen;
         onFullscreenChanged(fullscreen);
     }
@@ -448,6 +525,28 @@ public class TimesTableUi extends JFrame implements TimesTablePanel.Listener {
         setControlsVisibleInternal(!areControlsVisible());
     }
 
+    public final boolean isHeatMapVisible() {
+        return heatMapPane.isVisible();
+    }
+
+    /**
+     * Shows or hides the heat map. Hiding it cancels its pending tiles, the cached ones are kept
+     * */
+    public final boolean setHeatMapVisible(boolean visible) {
+        if (visible == isHeatMapVisible())
+            return false;
+
+        heatMapPane.setVisible(visible);
+        uia(ActionInfo.TOGGLE_HEAT_MAP).setSelected(visible);
+        revalidate();
+        repaint();
+        return true;
+    }
+
+    public final void toggleHeatMapVisibility() {
+        setHeatMapVisible(!isHeatMapVisible());
+    }
+
     protected void onPresentationModeEnabledChanged(boolean presenting) {
         uia(ActionInfo.TOGGLE_PRESENTATION_MODE)
                 .setName(R.getTogglePresentationModeText(presenting))
@@ -542,8 +641,11 @@ public class TimesTableUi extends JFrame implements TimesTablePanel.Listener {
     public void setPointsCount(int count) {
         count = panel.setPointsCount(count);
 
-        if (pointsCountSlider.getValue() != count) {
-            pointsCountSlider.setValue(count);
+        final int sliderValue = pointsCountToSlider(count);
+        if (pointsCountSlider.getValue() != sliderValue) {
+            mIgnorePointsSliderEvent = true;
+            pointsCountSlider.setValue(sliderValue);
+            mIgnorePointsSliderEvent = false;
         }
 
         pointsCountText.setText(R.getPointsCountText(count));
@@ -617,6 +719,15 @@ public class TimesTableUi extends JFrame implements TimesTablePanel.Listener {
         }
     }
 
+    public void setRenderMode(@NotNull RenderMode renderMode) {
+        panel.setRenderMode(renderMode);
+
+        final int index = renderMode.ordinal();
+        if (renderModeComboBox.getSelectedIndex() != index) {
+            renderModeComboBox.setSelectedIndex(index);
+        }
+    }
+
     public void setScale(double scale, boolean fromPanel) {
         if (!fromPanel) {
             panel.setScale(scale);
@@ -674,11 +785,17 @@ public class TimesTableUi extends JFrame implements TimesTablePanel.Listener {
     @Override
     public void onTimesFactorChanged(@NotNull TimesTablePanel panel, float timesFactor) {
         setTimesFactor(timesFactor, true);
+        if (isHeatMapVisible()) {
+            heatMap.repaint();      // marker
+        }
     }
 
     @Override
     public void onPointsCountChanged(@NotNull TimesTablePanel panel, int count) {
         setPointsCount(count);
+        if (isHeatMapVisible()) {
+            heatMap.repaint();      // marker
+        }
     }
 
     @Override
@@ -721,6 +838,31 @@ public class TimesTableUi extends JFrame implements TimesTablePanel.Listener {
         syncResetScaleAndDragButton();
     }
 
+    @Override
+    public void onRenderModeChanged(@NotNull TimesTablePanel panel, @NotNull RenderMode renderMode) {
+        setRenderMode(renderMode);
+    }
+
+    @Override
+    public void onActiveRenderingChanged(@NotNull TimesTablePanel panel, boolean activeRendering) {
+        uia(ActionInfo.TOGGLE_ACTIVE_RENDERING).setSelected(activeRendering);
+    }
+
+    @Override
+    public void onBackgroundRenderingChanged(@NotNull TimesTablePanel panel, boolean backgroundRendering) {
+        uia(ActionInfo.TOGGLE_BACKGROUND_RENDERING).setSelected(backgroundRendering);
+    }
+
+    @Override
+    public void onAdaptiveQualityChanged(@NotNull TimesTablePanel panel, boolean adaptiveQuality) {
+        uia(ActionInfo.TOGGLE_ADAPTIVE_QUALITY).setSelected(adaptiveQuality);
+    }
+
+    @Override
+    public void onDynamicResolutionChanged(@NotNull TimesTablePanel panel, boolean dynamicResolution) {
+        uia(ActionInfo.TOGGLE_DYNAMIC_RESOLUTION).setSelected(dynamicResolution);
+    }
+
 
     /* ................................ Actions ................... */
 
@@ -754,7 +896,12 @@ public class TimesTableUi extends JFrame implements TimesTablePanel.Listener {
         TOGGLE_CONTROLS(R.getToggleControlsText(true), R.getToggleControlsShortDescription(true), KeyStroke.getKeyStroke(KeyEvent.VK_C, InputEvent.SHIFT_DOWN_MASK)),
         TOGGLE_DRAW_CIRCLE(R.getDrawCircleText(), R.getDrawCircleShortDes(), KeyStroke.getKeyStroke(KeyEvent.VK_C, 0)),
         TOGGLE_DRAW_POINTS(R.getDrawPointsText(), R.getDrawPointsShortDes(), KeyStroke.getKeyStroke(KeyEvent.VK_P, 0)),
-        TOGGLE_PRESENTATION_MODE(R.getTogglePresentationModeText(false), R.getTogglePresentationModeShortDescription(false), KeyStroke.getKeyStroke(KeyEvent.VK_P, InputEvent.SHIFT_DOWN_MASK))
+        TOGGLE_PRESENTATION_MODE(R.getTogglePresentationModeText(false), R.getTogglePresentationModeShortDescription(false), KeyStroke.getKeyStroke(KeyEvent.VK_P, InputEvent.SHIFT_DOWN_MASK)),
+        TOGGLE_ACTIVE_RENDERING(R.getActiveRenderingText(), R.getActiveRenderingShortDes(), KeyStroke.getKeyStroke(KeyEvent.VK_A, InputEvent.SHIFT_DOWN_MASK)),
+        TOGGLE_BACKGROUND_RENDERING(R.getBackgroundRenderingText(), R.getBackgroundRenderingShortDes(), KeyStroke.getKeyStroke(KeyEvent.VK_B, InputEvent.SHIFT_DOWN_MASK)),
+        TOGGLE_ADAPTIVE_QUALITY(R.getAdaptiveQualityText(), R.getAdaptiveQualityShortDes(), KeyStroke.getKeyStroke(KeyEvent.VK_Q, InputEvent.SHIFT_DOWN_MASK)),
+        TOGGLE_DYNAMIC_RESOLUTION(R.getDynamicResolutionText(), R.getDynamicResolutionShortDes(), KeyStroke.getKeyStroke(KeyEvent.VK_E, InputEvent.SHIFT_DOWN_MASK)),
+        TOGGLE_HEAT_MAP(R.getHeatMapText(), R.getHeatMapShortDes(), KeyStroke.getKeyStroke(KeyEvent.VK_H, InputEvent.SHIFT_DOWN_MASK))
         ;
 
 
@@ -837,6 +984,11 @@ public class TimesTableUi extends JFrame implements TimesTablePanel.Listener {
                 case TOGGLE_DARK_MODE -> toggleDarkMode();
                 case TOGGLE_MENUBAR -> toggleMenuBarVisible();
                 case TOGGLE_PRESENTATION_MODE -> togglePresentationMode();
+                case TOGGLE_ACTIVE_RENDERING -> panel.toggleActiveRendering();
+                case TOGGLE_BACKGROUND_RENDERING -> panel.toggleBackgroundRendering();
+                case TOGGLE_ADAPTIVE_QUALITY -> panel.toggleAdaptiveQuality();
+                case TOGGLE_DYNAMIC_RESOLUTION -> panel.toggleDynamicResolution();
+                case TOGGLE_HEAT_MAP -> toggleHeatMapVisibility();
             }
         }
 
@@ -0,0 +1,142 @@
+package main.ui;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Three reusable frame images shared between one producer (render) thread and one consumer at a time: the UI thread, or the render thread
+ * itself when it presents actively.
+ * <ul>
+ *     <li>back: being drawn by the producer, see {@link #obtainBack(int, int)}</li>
+ *     <li>ready: latest completed frame, see {@link #publish(BufferedImage, FrameState)}</li>
+ *     <li>front: being displayed by the consumer, see {@link #acquireFront()}</li>
+ * </ul>
+ * Buffers are only swapped, never copied, so neither side ever waits for the other. A completed frame replaced before
+ * the consumer took it is counted as dropped
+ * <p>
+ * Thread-safe
+ */
+public class TripleBuffer {
+
+    public static final int BUFFERS_COUNT = 3;
+
+    public static final class Frame {
+
+        @Nullable
+        private BufferedImage image;
+        @Nullable
+        private FrameState key;
+
+        @Nullable
+        public BufferedImage image() {
+            return image;
+        }
+
+        @Nullable
+        public FrameState key() {
+            return key;
+        }
+    }
+
+    @NotNull
+    private Frame mBack = new Frame();
+    @NotNull
+    private Frame mReady = new Frame();
+    @NotNull
+    private Frame mFront = new Frame();
+    private boolean mReadyFresh;
+
+    private long mProduced;
+    private long mPresented;
+    private long mDropped;
+
+    /**
+     * @return the back image, of the given size. Its contents are undefined, and it is owned by the producer until {@link #publish(BufferedImage, FrameState)}
+     * */
+    @NotNull
+    public synchronized BufferedImage obtainBack(int width, int height) {
+        BufferedImage image = mBack.image;
+        if (image == null || image.getWidth() != width || image.getHeight() != height) {
+            image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            mBack.image = image;
+        }
+
+        return image;
+    }
+
+    /**
+     * Makes the back image the ready frame
+     *
+     * @param image the image obtained from {@link #obtainBack(int, int)}, now drawn
+     * @param key state the image was drawn from
+     * */
+    public synchronized void publish(@NotNull BufferedImage image, @NotNull FrameState key) {
+        if (mReadyFresh) {
+            mDropped++;
+        }
+
+        mBack.image = image;
+        mBack.key = key;
+        final Frame ready = mReady;
+        mReady = mBack;
+        mBack = ready;
+        mReadyFresh = true;
+        mProduced++;
+    }
+
+    /**
+     * @return the front frame, swapped with the ready frame first if a newer one was published. Owned by the consumer until the next call
+     * */
+    @NotNull
+    public synchronized Frame acquireFront() {
+        if (mReadyFresh) {
+            final Frame front = mFront;
+            mFront = mReady;
+            mReady = front;
+            mReadyFresh = false;
+            mPresented++;
+        }
+
+        return mFront;
+    }
+
+    /**
+     * @return whether a frame was published and not yet acquired
+     * */
+    public synchronized boolean hasFreshFrame() {
+        return mReadyFresh;
+    }
+
+    /**
+     * Drops all images, typically when the feature is turned off
+     * */
+    public synchronized void clear() {
+        mBack = new Frame();
+        mReady = new Frame();
+        mFront = new Frame();
+        mReadyFresh = false;
+    }
+
+    public synchronized long getFramesProduced() {
+        return mProduced;
+    }
+
+    public synchronized long getFramesPresented() {
+        return mPresented;
+    }
+
+    public synchronized long getFramesDropped() {
+        return mDropped;
+    }
+
+    public synchronized void resetStats() {
+        mProduced = mPresented = mDropped = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("TripleBuffer{produced=%d, presented=%d, dropped=%d}", mProduced, mPresented, mDropped);
+    }
+}
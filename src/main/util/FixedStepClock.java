@@ -0,0 +1,135 @@
+package main.util;
+
+/**
+ * Fixed timestep clock with frame pacing, driven by {@link System#nanoTime()}.
+ *
+ * <p>
+ * Real time elapsed between {@link #advance(long)} calls is consumed in whole steps of a fixed duration, so a simulation advanced by it
+ * does not depend on how often, or how regularly, it is driven. The remainder is exposed as an interpolation factor ({@link #alpha()}).
+ * After a stall, all missed steps are run at once up to a limit. Time beyond that (a suspended machine, a debugger) is dropped
+ * <p>
+ * Frames are paced to a target period with absolute deadlines ({@link #nextFrameDeadline(long)}), so sleep overshoot does not accumulate
+ * <p>
+ * Not thread-safe
+ */
+public class FixedStepClock {
+
+    private final long mStepNanos;
+    private final int mMaxCatchUpSteps;
+    private long mFramePeriodNanos;
+
+    private long mLastNanos = -1;
+    private long mAccumulatorNanos;
+    private long mNextFrameNanos = -1;
+
+    private long mSteps;
+    private long mDroppedNanos;
+
+    /**
+     * @param stepNanos duration of a simulation step
+     * @param maxCatchUpSteps maximum number of steps returned by a single {@link #advance(long)}
+     * @param framePeriodNanos target time between frames
+     * */
+    public FixedStepClock(long stepNanos, int maxCatchUpSteps, long framePeriodNanos) {
+        if (stepNanos <= 0 || maxCatchUpSteps <= 0)
+            throw new IllegalArgumentException("step and catch-up steps must be positive, given " + stepNanos + ", " + maxCatchUpSteps);
+
+        mStepNanos = stepNanos;
+        mMaxCatchUpSteps = maxCatchUpSteps;
+        setFramePeriodNanos(framePeriodNanos);
+    }
+
+    public long getStepNanos() {
+        return mStepNanos;
+    }
+
+    public int getMaxCatchUpSteps() {
+        return mMaxCatchUpSteps;
+    }
+
+    public long getFramePeriodNanos() {
+        return mFramePeriodNanos;
+    }
+
+    /**
+     * When the period gets shorter, the frame schedule restarts, so the next frame is not held back to a deadline of the old period
+     * */
+    public void setFramePeriodNanos(long framePeriodNanos) {
+        framePeriodNanos = Math.max(0, framePeriodNanos);
+        if (framePeriodNanos < mFramePeriodNanos) {
+            mNextFrameNanos = -1;
+        }
+
+        mFramePeriodNanos = framePeriodNanos;
+    }
+
+    /**
+     * Starts timing afresh from the given time, discarding any partial step
+     * */
+    public void restart(long nowNanos) {
+        mLastNanos = nowNanos;
+        mAccumulatorNanos = 0;
+    }
+
+    /**
+     * @return number of whole steps elapsed since the last call, at most {@link #getMaxCatchUpSteps()}. The first call after construction only starts timing
+     * */
+    public int advance(long nowNanos) {
+        if (mLastNanos == -1) {
+            restart(nowNanos);
+            return 0;
+        }
+
+        mAccumulatorNanos += Math.max(0, nowNanos - mLastNanos);
+        mLastNanos = nowNanos;
+
+        long steps = mAccumulatorNanos / mStepNanos;
+        if (steps > mMaxCatchUpSteps) {
+            mDroppedNanos += (steps - mMaxCatchUpSteps) * mStepNanos;
+            steps = mMaxCatchUpSteps;
+        }
+
+        mAccumulatorNanos -= steps * mStepNanos;
+        if (mAccumulatorNanos >= mStepNanos) {
+            mAccumulatorNanos %= mStepNanos;        // remainder of dropped time
+        }
+
+        mSteps += steps;
+        return (int) steps;
+    }
+
+    /**
+     * @return fraction of a step elapsed after the last whole step, in [0, 1). For interpolating between the states before and after that step
+     * */
+    public float alpha() {
+        return mAccumulatorNanos / (float) mStepNanos;
+    }
+
+    /**
+     * @return the time at which the next frame is due. If more than a whole period late, the schedule restarts from now instead of bursting frames to catch up
+     * */
+    public long nextFrameDeadline(long nowNanos) {
+        if (mNextFrameNanos == -1 || nowNanos - mNextFrameNanos > mFramePeriodNanos) {
+            mNextFrameNanos = nowNanos;
+        }
+
+        mNextFrameNanos += mFramePeriodNanos;
+        return mNextFrameNanos;
+    }
+
+    public long getSteps() {
+        return mSteps;
+    }
+
+    /**
+     * @return total time dropped because of stalls longer than the catch-up limit
+     * */
+    public long getDroppedNanos() {
+        return mDroppedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("FixedStepClock{step=%d ns, frame=%d ns, steps=%d, dropped=%.1f ms}", mStepNanos, mFramePeriodNanos, mSteps, mDroppedNanos / 1e6);
+    }
+}
@@ -2,33 +2,17 @@ package main.util;
 
 import org.jetbrains.annotations.NotNull;
 
-import javax.swing.*;
 import java.awt.*;
-import java.awt.event.ActionListener;
 
 public interface Ui {
 
     Dimension SCREEN_SIZE = Toolkit.getDefaultToolkit().getScreenSize();
-    int DEFAULT_LOOPER_DELAY_MS = 1;
 
     @NotNull
     static Rectangle windowBoundsCenterScreen(int width, int height) {
         return new Rectangle((SCREEN_SIZE.width - width) / 2, (SCREEN_SIZE.height - height) / 2, width, height);
     }
 
-    @NotNull
-    static Timer createLooper(@NotNull Runnable action, int delayMs) {
-        final ActionListener l = e -> action.run();
-        final Timer timer = new Timer(delayMs, l);
-        timer.setRepeats(true);
-        return timer;
-    }
-
-    @NotNull
-    static Timer createLooper(@NotNull Runnable action) {
-        return createLooper(action, DEFAULT_LOOPER_DELAY_MS);
-    }
-
 
     static boolean isMainThread() {
         return EventQueue.isDispatchThread();